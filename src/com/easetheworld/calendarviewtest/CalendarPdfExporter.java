@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * Exports years of calendar to a PDF, one year of twelve months per page,
+ * drawn by a {@link CalendarRenderer}.
+ * <p>
+ * Each page is rendered into the same bitmap and written as soon as it is
+ * drawn, so memory use does not grow with the number of years.
+ */
+public final class CalendarPdfExporter {
+
+    /**
+     * The callback of {@link CalendarPdfExporter#export(File, int, int, Listener)},
+     * called on the UI thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called after each written page.
+         *
+         * @param pageCount The number of pages written.
+         * @param totalPageCount The number of pages of the document.
+         */
+        public void onProgress(int pageCount, int totalPageCount);
+
+        /**
+         * Called once the document is complete.
+         */
+        public void onFinished(File file);
+
+        /**
+         * Called if the document cannot be written. The partial file is
+         * deleted. If rendering a page failed, e.g. with an
+         * {@link OutOfMemoryError}, the cause of e is the thrown error.
+         */
+        public void onError(File file, IOException e);
+
+        /**
+         * Called if the export was cancelled. The partial file is deleted.
+         */
+        public void onCancelled(File file);
+    }
+
+    /**
+     * A running export.
+     */
+    public interface Export {
+
+        /**
+         * Stops the export after the current page.
+         */
+        public void cancel();
+
+        public boolean isCancelled();
+    }
+
+    /**
+     * The width of an A4 page in points.
+     */
+    public static final int A4_WIDTH = 595;
+
+    /**
+     * The height of an A4 page in points.
+     */
+    public static final int A4_HEIGHT = 842;
+
+    private static final int POINTS_PER_INCH = 72;
+
+    private static final int DEFAULT_DPI = 150;
+
+    private static final int DEFAULT_JPEG_QUALITY = 90;
+
+    private static final int MONTH_COLUMNS = 3;
+
+    private static final int MONTH_ROWS = 4;
+
+    private final CalendarRenderer mRenderer;
+
+    private int mPageWidth = A4_WIDTH;
+
+    private int mPageHeight = A4_HEIGHT;
+
+    private int mDpi = DEFAULT_DPI;
+
+    private int mJpegQuality = DEFAULT_JPEG_QUALITY;
+
+    /**
+     * @param renderer Draws the months, with the style and markings it is
+     *            set up with. Its text size should suit the resolution of
+     *            the pages, see {@link #setResolution(int)}.
+     */
+    public CalendarPdfExporter(CalendarRenderer renderer) {
+        mRenderer = renderer;
+    }
+
+    /**
+     * Sets the size of the pages in points, the default is A4 portrait.
+     */
+    public void setPageSize(int width, int height) {
+        mPageWidth = width;
+        mPageHeight = height;
+    }
+
+    /**
+     * Sets the resolution the pages are rendered at, the default is 150 dpi.
+     */
+    public void setResolution(int dpi) {
+        mDpi = dpi;
+    }
+
+    /**
+     * Sets the quality of the page images from 0 to 100.
+     */
+    public void setJpegQuality(int quality) {
+        mJpegQuality = quality;
+    }
+
+    /**
+     * Writes the PDF to a file on a background thread.
+     *
+     * @param firstYear The year of the first page.
+     * @param yearCount The number of years, one page each.
+     * @param listener Notified on the UI thread, may be null.
+     * @return The export, to cancel it.
+     */
+    public Export export(final File file, final int firstYear, final int yearCount,
+            final Listener listener) {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        final ExportTask task = new ExportTask();
+        Thread thread = new Thread("CalendarView PDF export") {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                IOException error = null;
+                try {
+                    write(new BufferedOutputStream(new FileOutputStream(file)), firstYear,
+                            yearCount, task, new Progress() {
+                                @Override
+                                public void onPage(final int pageCount) {
+                                    if (listener == null) {
+                                        return;
+                                    }
+                                    handler.post(new Runnable() {
+                                        @Override
+                                        public void run() {
+                                            listener.onProgress(pageCount, yearCount);
+                                        }
+                                    });
+                                }
+                            });
+                } catch (IOException e) {
+                    error = e;
+                } catch (OutOfMemoryError e) {
+                    error = wrap(e);
+                } catch (RuntimeException e) {
+                    error = wrap(e);
+                }
+                final IOException finalError = error;
+                final boolean cancelled = task.isCancelled();
+                if (finalError != null || cancelled) {
+                    file.delete();
+                }
+                if (listener == null) {
+                    return;
+                }
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (finalError != null) {
+                            listener.onError(file, finalError);
+                        } else if (cancelled) {
+                            listener.onCancelled(file);
+                        } else {
+                            listener.onFinished(file);
+                        }
+                    }
+                });
+            }
+        };
+        thread.start();
+        return task;
+    }
+
+    /**
+     * @return An exception for the listener caused by the given error.
+     */
+    private static IOException wrap(Throwable error) {
+        IOException e = new IOException("Cannot write the document: " + error);
+        e.initCause(error);
+        return e;
+    }
+
+    /**
+     * Writes the PDF on the calling thread.
+     *
+     * @param out The stream of the document, closed when this returns.
+     * @param export Checked for cancellation between pages, may be null.
+     */
+    public void write(OutputStream out, int firstYear, int yearCount, Export export)
+            throws IOException {
+        write(out, firstYear, yearCount, export, null);
+    }
+
+    private void write(OutputStream out, int firstYear, int yearCount, Export export,
+            Progress progress) throws IOException {
+        int width = mPageWidth * mDpi / POINTS_PER_INCH;
+        int height = mPageHeight * mDpi / POINTS_PER_INCH;
+        Bitmap bitmap = null;
+        boolean complete = false;
+        try {
+            PdfWriter writer = new PdfWriter(out);
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            Page page = new Page(width, height);
+            JpegBuffer jpeg = new JpegBuffer();
+            for (int i = 0; i < yearCount; i++) {
+                if (export != null && export.isCancelled()) {
+                    break;
+                }
+                bitmap.eraseColor(Color.WHITE);
+                page.draw(canvas, firstYear + i);
+                jpeg.reset();
+                bitmap.compress(Bitmap.CompressFormat.JPEG, mJpegQuality, jpeg);
+                writer.addJpegPage(jpeg.getBuffer(), jpeg.size(), width, height,
+                        mPageWidth, mPageHeight);
+                if (progress != null) {
+                    progress.onPage(i + 1);
+                }
+            }
+            writer.close();
+            complete = true;
+        } finally {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            if (!complete) {
+                // not a complete document or no writer, only release the stream
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Hands out its buffer so a page is not copied before it is written.
+     */
+    private static final class JpegBuffer extends ByteArrayOutputStream {
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+
+    /**
+     * Receives the number of pages written so far.
+     */
+    private interface Progress {
+        public void onPage(int pageCount);
+    }
+
+    /**
+     * The layout of a year page, a title and the months in a grid.
+     */
+    private final class Page {
+
+        private final Paint mTitlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        private final Rect mMonthBounds = new Rect();
+
+        private final int mWidth;
+
+        private final int mMargin;
+
+        private final int mTitleHeight;
+
+        private final int mMonthWidth;
+
+        private final int mMonthHeight;
+
+        Page(int width, int height) {
+            mWidth = width;
+            mMargin = width / 20;
+            mTitleHeight = height / 12;
+            mMonthWidth = (width - 2 * mMargin) / MONTH_COLUMNS;
+            mMonthHeight = (height - 2 * mMargin - mTitleHeight) / MONTH_ROWS;
+            mTitlePaint.setTextAlign(Align.CENTER);
+            mTitlePaint.setFakeBoldText(true);
+            mTitlePaint.setColor(Color.BLACK);
+            mTitlePaint.setTextSize(mTitleHeight / 2);
+        }
+
+        void draw(Canvas canvas, int year) {
+            canvas.drawText(Integer.toString(year), mWidth / 2,
+                    mMargin + (mTitleHeight + mTitlePaint.getTextSize()) / 2, mTitlePaint);
+            int padding = mMonthWidth / 20;
+            for (int month = 0; month < 12; month++) {
+                int left = mMargin + (month % MONTH_COLUMNS) * mMonthWidth;
+                int top = mMargin + mTitleHeight + (month / MONTH_COLUMNS) * mMonthHeight;
+                mMonthBounds.set(left + padding, top + padding, left + mMonthWidth - padding,
+                        top + mMonthHeight - padding);
+                mRenderer.renderMonth(canvas, mMonthBounds, year, month, -1);
+            }
+        }
+    }
+
+    private static final class ExportTask implements Export {
+
+        private volatile boolean mCancelled;
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+    }
+}
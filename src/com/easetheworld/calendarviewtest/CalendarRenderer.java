@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+import android.graphics.Paint.Style;
+import android.graphics.Rect;
+
+/**
+ * Renders months and ranges of weeks into a canvas without any view, e.g. for
+ * notifications, widgets or printing. The weeks are drawn by the same code
+ * as the rows of {@link CalendarView}.
+ * <p>
+ * The render methods can be called from any number of threads at once, each
+ * call draws with its own copies of the paints. Changing the style while
+ * rendering affects only the calls started afterwards.
+ */
+public final class CalendarRenderer {
+
+    private static final int DEFAULT_DATE_TEXT_SIZE = 14;
+
+    private static final int DAY_DATA_INDICATOR_COLOR = 0xff3399cc;
+
+    /**
+     * The number of week rows of a rendered month, enough for any month.
+     */
+    private static final int MONTH_WEEK_COUNT = 6;
+
+    /**
+     * The style of the calls started next. Guarded by this.
+     */
+    private final WeekPainter mPainter;
+
+    private final Paint mTitlePaint;
+
+    private final Paint mLabelPaint;
+
+    private int mFirstDayOfWeek;
+
+    private int mWeekNumbering = CalendarView.WEEK_NUMBERING_LOCALE;
+
+    private Locale mLocale;
+
+    private TimeZone mTimeZone;
+
+    private DayDataStore mDayDataStore;
+
+    private int mDayDataField;
+
+    /**
+     * Creates a renderer with the default style of {@link CalendarView}, the
+     * default locale and the default time zone.
+     */
+    public CalendarRenderer() {
+        Paint weekdayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        weekdayPaint.setTextAlign(Align.CENTER);
+        weekdayPaint.setFakeBoldText(true);
+        weekdayPaint.setStyle(Style.FILL);
+        weekdayPaint.setTextSize(DEFAULT_DATE_TEXT_SIZE);
+        weekdayPaint.setColor(Color.BLACK);
+        Paint saturdayPaint = new Paint(weekdayPaint);
+        saturdayPaint.setColor(Color.BLUE);
+        Paint sundayPaint = new Paint(weekdayPaint);
+        sundayPaint.setColor(Color.RED);
+        mPainter = new WeekPainter(weekdayPaint, saturdayPaint, sundayPaint);
+        mPainter.setShowWeekNumber(false);
+        mTitlePaint = new Paint(weekdayPaint);
+        mLabelPaint = new Paint(weekdayPaint);
+        mLabelPaint.setFakeBoldText(false);
+        mLocale = Locale.getDefault();
+        mTimeZone = TimeZone.getDefault();
+        mFirstDayOfWeek = Calendar.getInstance(mTimeZone, mLocale).getFirstDayOfWeek();
+    }
+
+    /**
+     * Sets the colors of the dates, the month title and the day names.
+     */
+    public synchronized void setDateColors(int weekdayColor, int saturdayColor, int sundayColor) {
+        mPainter.setDateColors(weekdayColor, saturdayColor, sundayColor);
+        mTitlePaint.setColor(weekdayColor);
+        mLabelPaint.setColor(weekdayColor);
+    }
+
+    /**
+     * Sets the size of the dates in pixels. The title and the day names are
+     * drawn in the same size.
+     */
+    public synchronized void setDateTextSize(float size) {
+        mPainter.setDateTextSize(size);
+        mTitlePaint.setTextSize(size);
+        mLabelPaint.setTextSize(size);
+    }
+
+    public synchronized void setShowWeekNumber(boolean showWeekNumber) {
+        mPainter.setShowWeekNumber(showWeekNumber);
+    }
+
+    public synchronized void setWeekNumberColor(int color) {
+        mPainter.setWeekNumberColor(color);
+    }
+
+    /**
+     * Sets the color of the selected day, see
+     * {@link #renderMonth(Canvas, Rect, int, int, long)}.
+     */
+    public synchronized void setSelectedDateColor(int color) {
+        mPainter.setSelectedDateColor(color);
+    }
+
+    /**
+     * Sets the line drawn between the weeks.
+     *
+     * @param width The width in pixels, 0 for no line.
+     */
+    public synchronized void setWeekSeparator(int color, int width) {
+        mPainter.setSeparator(color, width);
+    }
+
+    /**
+     * @param firstDayOfWeek The first day of week, e.g. {@link Calendar#MONDAY}.
+     */
+    public synchronized void setFirstDayOfWeek(int firstDayOfWeek) {
+        mFirstDayOfWeek = firstDayOfWeek;
+    }
+
+    /**
+     * Sets the locale of the month and day names and whose rules number the
+     * weeks of the year.
+     */
+    public synchronized void setLocale(Locale locale) {
+        mLocale = locale;
+    }
+
+    /**
+     * Sets how the weeks of the year are numbered, see
+     * {@link CalendarView#setWeekNumbering(int)}.
+     */
+    public synchronized void setWeekNumbering(int weekNumbering) {
+        mWeekNumbering = weekNumbering;
+    }
+
+    /**
+     * Sets the time zone the dates given in milliseconds are in.
+     */
+    public synchronized void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    /**
+     * Marks the days whose value in the given store is not 0, see
+     * {@link CalendarView#setDayDataStore(DayDataStore, int)}.
+     *
+     * @param store The store or null for no marks.
+     * @param field The index of the value in the record of a day.
+     */
+    public synchronized void setDayDataStore(DayDataStore store, int field) {
+        mDayDataStore = store;
+        mDayDataField = field;
+    }
+
+    /**
+     * Renders a month into the whole bitmap.
+     *
+     * @see #renderMonth(Canvas, Rect, int, int, long)
+     */
+    public void renderMonth(Bitmap bitmap, int year, int month, long selectedDate) {
+        renderMonth(new Canvas(bitmap), new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight()),
+                year, month, selectedDate);
+    }
+
+    /**
+     * Renders a month as a title, a row of day names and six weeks. Only the
+     * dates of the month are drawn.
+     *
+     * @param bounds The part of the canvas to draw in.
+     * @param month The month [0-11].
+     * @param selectedDate The date in milliseconds of the day to highlight,
+     *            or -1 for none.
+     */
+    public void renderMonth(Canvas canvas, Rect bounds, int year, int month, long selectedDate) {
+        Frame frame = newFrame();
+        int monthIndex = year * 12 + month;
+        int firstDay = WeekModel.getFirstDayOfMonthIndex(monthIndex);
+        int lastDay = WeekModel.getFirstDayOfMonthIndex(monthIndex + 1) - 1;
+        WeekModel model = frame.obtainModel(firstDay, lastDay);
+        try {
+            // the title, the day names and the weeks share the height
+            int rowHeight = bounds.height() / (MONTH_WEEK_COUNT + 2);
+            String title = new DateFormatSymbols(frame.locale).getMonths()[month] + " " + year;
+            canvas.drawText(title, bounds.centerX(),
+                    bounds.top + (rowHeight + frame.titlePaint.getTextSize()) / 2,
+                    frame.titlePaint);
+            Rect rowBounds = new Rect(bounds.left, bounds.top + rowHeight, bounds.right,
+                    bounds.top + 2 * rowHeight);
+            drawDayLabels(canvas, frame, model, rowBounds);
+            int selectedDay = selectedDate == -1 ? Integer.MIN_VALUE
+                    : model.getLocalDay(selectedDate);
+            for (int week = 0; week < model.getWeekCount(); week++) {
+                rowBounds.offset(0, rowHeight);
+                drawWeek(canvas, frame, model, week, rowBounds, selectedDay, false);
+            }
+        } finally {
+            model.release();
+        }
+    }
+
+    /**
+     * Renders consecutive weeks as rows of the same height, with the months
+     * tinted as in {@link CalendarView}.
+     *
+     * @param bounds The part of the canvas to draw in.
+     * @param firstDate A date in milliseconds in the first week.
+     * @param weekCount The number of weeks.
+     * @param selectedDate The date in milliseconds of the day to highlight,
+     *            or -1 for none.
+     */
+    public void renderWeeks(Canvas canvas, Rect bounds, long firstDate, int weekCount,
+            long selectedDate) {
+        if (weekCount <= 0) {
+            return;
+        }
+        Frame frame = newFrame();
+        int firstDay = WeekModel.toLocalDay(firstDate, frame.timeZone);
+        // show the whole first week
+        firstDay -= WeekModel.floorMod(WeekModel.getDayOfWeek(firstDay) - frame.firstDayOfWeek,
+                WeekModel.DAYS_PER_WEEK);
+        WeekModel model = frame.obtainModel(firstDay,
+                firstDay + weekCount * WeekModel.DAYS_PER_WEEK - 1);
+        try {
+            int selectedDay = selectedDate == -1 ? Integer.MIN_VALUE
+                    : model.getLocalDay(selectedDate);
+            Rect rowBounds = new Rect();
+            for (int i = 0; i < weekCount; i++) {
+                rowBounds.set(bounds.left, bounds.top + i * bounds.height() / weekCount,
+                        bounds.right, bounds.top + (i + 1) * bounds.height() / weekCount);
+                drawWeek(canvas, frame, model, i, rowBounds, selectedDay, true);
+            }
+        } finally {
+            model.release();
+        }
+    }
+
+    private void drawDayLabels(Canvas canvas, Frame frame, WeekModel model, Rect bounds) {
+        int cellCount = frame.painter.getCellCount();
+        int offset = frame.painter.isShowWeekNumber() ? 1 : 0;
+        float y = bounds.top + (bounds.height() + frame.labelPaint.getTextSize()) / 2;
+        for (int i = 0; i < WeekModel.DAYS_PER_WEEK; i++) {
+            float x = bounds.left + (2 * (i + offset) + 1) * bounds.width() / (2 * cellCount);
+            canvas.drawText(model.getDayLabel(i), x, y, frame.labelPaint);
+        }
+    }
+
+    private void drawWeek(Canvas canvas, Frame frame, WeekModel model, int week, Rect bounds,
+            int selectedDay, boolean tintMonths) {
+        WeekPainter painter = frame.painter;
+        int startDay = model.getWeekStartDay(week);
+        if (tintMonths) {
+            painter.drawMonthTint(canvas, model, week, bounds);
+        }
+        int column = selectedDay - startDay;
+        painter.drawSelection(canvas, bounds,
+                column >= 0 && column < WeekModel.DAYS_PER_WEEK ? column : -1);
+        painter.drawDates(canvas, model, week, bounds, true);
+        if (frame.dayDataStore != null) {
+            frame.dayDataStore.getValues(startDay, frame.dayDataField, frame.dayValues);
+            painter.drawDayIndicators(canvas, model, week, bounds, frame.dayValues,
+                    DAY_DATA_INDICATOR_COLOR, Math.max(1, painter.getSeparatorWidth()) * 2);
+        }
+        if (painter.getSeparatorWidth() > 0) {
+            painter.drawSeparator(canvas, bounds);
+        }
+    }
+
+    /**
+     * @return The current style, copied for one render call.
+     */
+    private synchronized Frame newFrame() {
+        return new Frame(this);
+    }
+
+    /**
+     * The style of one render call, owned by the calling thread.
+     */
+    private static final class Frame {
+        final WeekPainter painter;
+        final Paint titlePaint;
+        final Paint labelPaint;
+        final int firstDayOfWeek;
+        final int weekNumbering;
+        final Locale locale;
+        final TimeZone timeZone;
+        final DayDataStore dayDataStore;
+        final int dayDataField;
+        final int[] dayValues = new int[WeekModel.DAYS_PER_WEEK];
+
+        Frame(CalendarRenderer renderer) {
+            painter = renderer.mPainter.copy();
+            titlePaint = new Paint(renderer.mTitlePaint);
+            labelPaint = new Paint(renderer.mLabelPaint);
+            firstDayOfWeek = renderer.mFirstDayOfWeek;
+            weekNumbering = renderer.mWeekNumbering;
+            locale = renderer.mLocale;
+            timeZone = renderer.mTimeZone;
+            dayDataStore = renderer.mDayDataStore;
+            dayDataField = renderer.mDayDataField;
+        }
+
+        /**
+         * @return The shared model of the given local days. It must be
+         *         released.
+         */
+        WeekModel obtainModel(int minDay, int maxDay) {
+            return WeekModel.obtain(WeekModel.getMillisForLocalDay(minDay, timeZone),
+                    WeekModel.getMillisForLocalDay(maxDay, timeZone), firstDayOfWeek, locale,
+                    timeZone, weekNumbering);
+        }
+
+    }
+}
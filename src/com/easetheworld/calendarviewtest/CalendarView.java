@@ -18,24 +18,40 @@
 
 package com.easetheworld.calendarviewtest;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import android.annotation.TargetApi;
-import android.app.Service;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.Paint.Style;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v4.util.LruCache;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.ViewPager;
+import android.text.TextPaint;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
 import android.util.AttributeSet;
@@ -43,16 +59,19 @@ import android.util.DisplayMetrics;
 import android.util.Log;
 import android.util.TypedValue;
 import android.view.GestureDetector;
-import android.view.LayoutInflater;
+import android.view.KeyEvent;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.SoundEffectConstants;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
+import android.widget.AbsListView;
 import android.widget.BaseAdapter;
 import android.widget.FrameLayout;
 import android.widget.LinearLayout;
-import android.widget.TextView;
+import android.widget.Scroller;
 
 // this is from android.widget.CalendarView source
 
@@ -74,19 +93,120 @@ public class CalendarView extends FrameLayout {
     private static final boolean DEFAULT_SHOW_WEEK_NUMBER = true;
 
     /**
-     * The number of milliseconds in a day.e
+     * Default fling speed in weeks per second above which detail is reduced.
      */
-    private static final long MILLIS_IN_DAY = 86400000L;
+    private static final float DEFAULT_REDUCED_DETAIL_ENTER_SPEED = 30;
 
     /**
-     * The number of day in a week.
+     * Default fling speed in weeks per second below which full detail comes
+     * back.
      */
-    private static final int DAYS_PER_WEEK = 7;
+    private static final float DEFAULT_REDUCED_DETAIL_EXIT_SPEED = 15;
+
+    /**
+     * Display mode showing a continuous vertical list of weeks.
+     *
+     * @see #setDisplayMode(int)
+     */
+    public static final int DISPLAY_MODE_WEEKS = 0;
+
+    /**
+     * Display mode showing one month per page, swiped horizontally.
+     *
+     * @see #setDisplayMode(int)
+     */
+    public static final int DISPLAY_MODE_MONTH_PAGER = 1;
+
+    /**
+     * Display mode showing the twelve months of a year at a glance.
+     *
+     * @see #setDisplayMode(int)
+     */
+    public static final int DISPLAY_MODE_YEAR = 2;
+
+    /**
+     * Weeks numbered by the rules of the locale, starting on the first day of
+     * week of the calendar.
+     *
+     * @see #setWeekNumbering(int)
+     */
+    public static final int WEEK_NUMBERING_LOCALE = 0;
+
+    /**
+     * ISO-8601 week numbers. Weeks start on Monday and week 1 is the week
+     * holding the first Thursday of the year.
+     *
+     * @see #setWeekNumbering(int)
+     */
+    public static final int WEEK_NUMBERING_ISO = 1;
+
+    /**
+     * US week numbers. Weeks start on Sunday and week 1 is the week holding
+     * January 1.
+     *
+     * @see #setWeekNumbering(int)
+     */
+    public static final int WEEK_NUMBERING_US = 2;
+
+    /**
+     * The number of weeks on a page of the month pager.
+     */
+    private static final int MONTH_PAGE_WEEK_COUNT = 6;
+
+    /**
+     * The smallest number of weeks shown by pinching.
+     */
+    private static final int MIN_ZOOM_WEEK_COUNT = 2;
 
     /**
-     * The number of milliseconds in a week.
+     * The largest number of weeks shown by pinching.
      */
-    private static final long MILLIS_IN_WEEK = DAYS_PER_WEEK * MILLIS_IN_DAY;
+    private static final int MAX_ZOOM_WEEK_COUNT = 12;
+
+    /**
+     * The maximal number of event titles drawn inside a day.
+     */
+    private static final int MAX_EVENT_TITLES_PER_DAY = 2;
+
+    /**
+     * The number of heatmap intensities.
+     */
+    private static final int HEATMAP_LEVELS = 256;
+
+    /**
+     * Default heatmap color for intensity 0.
+     */
+    private static final int DEFAULT_HEATMAP_LOW_COLOR = 0x10ff0000;
+
+    /**
+     * Default heatmap color for intensity 255.
+     */
+    private static final int DEFAULT_HEATMAP_HIGH_COLOR = 0xc0ff0000;
+
+    /**
+     * Default color of the outline of today.
+     */
+    private static final int DEFAULT_TODAY_COLOR = 0xffff9900;
+
+    /**
+     * Default color of the dates of the secondary chronology.
+     */
+    private static final int DEFAULT_SECONDARY_DATE_COLOR = 0xff808080;
+
+    /**
+     * The prefix of the files snapshots are stored in.
+     */
+    private static final String SNAPSHOT_FILE_PREFIX = "calendarview_snapshot_";
+
+    /**
+     * How long the calendar must be settled before a snapshot is taken.
+     */
+    private static final int SNAPSHOT_SAVE_DELAY = 1000;
+
+    /**
+     * The number of day in a week.
+     */
+    private static final int DAYS_PER_WEEK = 7;
 
     /**
      * String for parsing dates.
@@ -103,12 +223,35 @@ public class CalendarView extends FrameLayout {
      */
     private static final String DEFAULT_MAX_DATE = "01/01/2100";
 
+    /**
+     * The minimal date used in unbounded mode.
+     */
+    private static final String UNBOUNDED_MIN_DATE = "01/01/1601";
+
+    /**
+     * The maximal date used in unbounded mode.
+     */
+    private static final String UNBOUNDED_MAX_DATE = "12/31/9999";
+
+    /**
+     * The number of weeks exposed by the adapter in unbounded mode.
+     */
+    private static final int VIRTUAL_WEEK_COUNT = 1024;
+
+    /**
+     * How close to the edge of the virtual window the first shown week may get
+     * before the window is re-centered.
+     */
+    private static final int VIRTUAL_WEEK_MARGIN = VIRTUAL_WEEK_COUNT / 4;
+
     private static final int DEFAULT_SHOWN_WEEK_COUNT = 6;
 
     private static final int DEFAULT_DATE_TEXT_SIZE = 14;
 
     private static final int UNSCALED_WEEK_SEPARATOR_LINE_WIDTH = 1;
 
+    private static final int UNSCALED_EVENT_TITLE_PADDING = 2;
+
     private static final int DEFAULT_WEEK_DAY_TEXT_APPEARANCE_RES_ID = -1;
     
 
@@ -140,6 +283,24 @@ public class CalendarView extends FrameLayout {
      */
     private boolean mShowWeekNumber;
 
+    /**
+     * Flag whether the adapter exposes a virtual window of weeks instead of
+     * the whole range.
+     */
+    private boolean mUnbounded;
+
+    /**
+     * Moves the window of weeks around the first shown week, posted from the
+     * scroll listener so it does not run inside a layout pass.
+     */
+    private final Runnable mEnsureWindowRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mAdapter.ensureWeekInWindow(
+                    mAdapter.getWeekForPosition(mListView.getFirstVisiblePosition()));
+        }
+    };
+
     /**
      * The number of day per week to be shown.
      */
@@ -170,12 +331,301 @@ public class CalendarView extends FrameLayout {
     /**
      * The header with week day names.
      */
-    private ViewGroup mDayNamesHeader;
+    private DayNamesHeader mDayNamesHeader;
+
+    /**
+     * The shared week model of the current configuration.
+     */
+    private WeekModel mWeekModel;
+
+    /**
+     * Whether {@link #mWeekModel} has been released on detach.
+     */
+    private boolean mWeekModelReleased;
+
+    /**
+     * The pool the week rows are shared through or null.
+     */
+    private WeekViewPool mWeekViewPool;
+
+    /**
+     * The first shown position and its offset when the rows were given to
+     * the pool on detach, restored on attach.
+     */
+    private int mDetachedFirstPosition;
+    private int mDetachedFirstTop;
+
+    /**
+     * Draws the base layers of the weeks.
+     */
+    private WeekPainter mWeekPainter;
+
+    /**
+     * The display mode, {@link #DISPLAY_MODE_WEEKS} or
+     * {@link #DISPLAY_MODE_MONTH_PAGER}.
+     */
+    private int mDisplayMode = DISPLAY_MODE_WEEKS;
+
+    private int mWeekNumbering = WEEK_NUMBERING_LOCALE;
+
+    /**
+     * The pager of the month pager mode, created when the mode is first used.
+     */
+    private ViewPager mMonthPager;
+
+    /**
+     * The view of the year overview mode, created when the mode is first used.
+     */
+    private YearView mYearView;
+
+    /**
+     * Whether the month pages are kept in layers because the pager moves.
+     */
+    private boolean mMonthPageLayersEnabled;
+
+    /**
+     * Whether the scrubber is shown on the right edge of the weeks.
+     */
+    private boolean mScrubberEnabled;
+
+    /**
+     * The months of {@link #mWeekModel} the scrubber jumps between, created
+     * when needed.
+     */
+    private MonthSectionIndex mMonthSectionIndex;
+
+    /**
+     * Whether the weeks are drawn with reduced detail during a fast fling.
+     */
+    private boolean mReducedDetail;
+
+    /**
+     * The fling speed in weeks per second above which detail is reduced.
+     */
+    private float mReducedDetailEnterSpeed = DEFAULT_REDUCED_DETAIL_ENTER_SPEED;
+
+    /**
+     * The fling speed in weeks per second below which full detail comes back.
+     */
+    private float mReducedDetailExitSpeed = DEFAULT_REDUCED_DETAIL_EXIT_SPEED;
+
+    /**
+     * The first visible position and the time of the last speed measurement.
+     */
+    private int mSpeedFirstVisibleItem;
+    private long mSpeedTime;
+
+    /**
+     * The number of week draws with reduced and full detail.
+     */
+    private int mReducedDrawCount;
+    private int mFullDrawCount;
+
+    /**
+     * Whether the number of shown weeks can be changed with a pinch.
+     */
+    private boolean mPinchZoomEnabled = true;
+
+    /**
+     * The heights of the weeks if they depend on their content or null if all
+     * weeks have the same height.
+     */
+    private RowHeightIndex mRowHeightIndex;
+
+    /**
+     * The provider of the event titles drawn inside the days or null.
+     */
+    private EventTitleProvider mEventTitleProvider;
+
+    /**
+     * The event titles ellipsized to the width of a day.
+     */
+    private final EventTextCache mEventTextCache = new EventTextCache();
+
+    /**
+     * The paint for the event titles.
+     */
+    private TextPaint mEventTitlePaint;
+
+    /**
+     * The horizontal padding of the event titles inside a day.
+     */
+    private int mEventTitlePadding;
+
+    /**
+     * The last week bound to a row, to find the scroll direction.
+     */
+    private int mLastBoundWeek;
+
+    /**
+     * The event titles of the weeks measured ahead, reused when the weeks are
+     * bound. A week is kept in the slot of its number modulo the slot count.
+     */
+    private String[][] mPrefetchedTitles;
+
+    /**
+     * The week of each slot of {@link #mPrefetchedTitles}.
+     */
+    private int[] mPrefetchedWeeks;
+
+    /**
+     * Receives the event titles of one day.
+     */
+    private final String[] mDayEventTitles = new String[MAX_EVENT_TITLES_PER_DAY];
+
+    /**
+     * The local day of today, found again at midnight and when the time or
+     * the time zone is changed.
+     */
+    private int mToday;
+
+    private int mTodayColor = DEFAULT_TODAY_COLOR;
+
+    /**
+     * The calendar system whose dates are drawn next to the dates, or null.
+     */
+    private Chronology mSecondaryChronology;
+
+    private int mSecondaryDateColor = DEFAULT_SECONDARY_DATE_COLOR;
+
+    /**
+     * Finds today again when the next local midnight has come.
+     */
+    private final Runnable mUpdateTodayRunnable = new Runnable() {
+        @Override
+        public void run() {
+            updateToday();
+        }
+    };
+
+    /**
+     * Finds today again when the clock, the date or the time zone is set.
+     */
+    private final BroadcastReceiver mTimeChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                followDefaultTimeZone();
+            }
+            updateToday();
+        }
+    };
+
+    /**
+     * The time zone given to {@link #setTimeZone(TimeZone)} or null to follow
+     * the default time zone.
+     */
+    private TimeZone mExplicitTimeZone;
+
+    /**
+     * The value of {@link #mPostedDate} while no date is posted.
+     */
+    private static final long NO_POSTED_DATE = Long.MIN_VALUE;
+
+    /**
+     * The latest date given to {@link #postDate(long)} and not applied yet.
+     */
+    private final AtomicLong mPostedDate = new AtomicLong(NO_POSTED_DATE);
+
+    /**
+     * Whether the UI thread is going to apply the posted date.
+     */
+    private final AtomicBoolean mPostedDateScheduled = new AtomicBoolean();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * The number of repeats of a held arrow key after which it moves by
+     * weeks instead of days.
+     */
+    private static final int KEY_REPEAT_WEEK_STEPS = 10;
+
+    /**
+     * The number of repeats of a held navigation key after which it moves by
+     * months.
+     */
+    private static final int KEY_REPEAT_MONTH_STEPS = 30;
+
+    /**
+     * The date the add calls made since the last frame lead to, created on
+     * the first call.
+     */
+    private Calendar mPendingAddDate;
+
+    /**
+     * Whether the add calls made since the last frame are waiting for it.
+     */
+    private boolean mAddPending;
+
+    private boolean mPendingAddAnimate;
+
+    private boolean mPendingAddCenter;
+
+    /**
+     * Goes to the date of the add calls of the last frame.
+     */
+    private final Runnable mApplyPendingAddRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyPendingAdd();
+        }
+    };
+
+    /**
+     * The per-day heatmap intensities from 0 to 255 or null if the weeks are
+     * drawn with month backgrounds.
+     */
+    private byte[] mHeatmapIntensities;
+
+    /**
+     * The local day of the first value of {@link #mHeatmapIntensities}.
+     */
+    private int mHeatmapFirstDay;
+
+    /**
+     * The color for each heatmap intensity.
+     */
+    private final int[] mHeatmapColors = new int[HEATMAP_LEVELS];
 
     /**
-     * Cached labels for the week names header.
+     * The store of per-day values marked in the weeks or null.
      */
-    private String[] mDayLabels;
+    private DayDataStore mDayDataStore;
+
+    /**
+     * The field of {@link #mDayDataStore} which is marked.
+     */
+    private int mDayDataField;
+
+    /**
+     * The current scroll state of the weeks list.
+     */
+    private int mScrollState = AbsListView.OnScrollListener.SCROLL_STATE_IDLE;
+
+    /**
+     * Where the snapshot is stored or null if snapshots are disabled.
+     */
+    private SnapshotCache mSnapshotCache;
+
+    /**
+     * The snapshot shown until the rows are bound or null.
+     */
+    private Bitmap mSnapshot;
+
+    /**
+     * The selected week the shown snapshot was taken for.
+     */
+    private int mSnapshotWeek;
+
+    /**
+     * Whether the stored snapshot matches what is shown.
+     */
+    private boolean mSnapshotUpToDate;
+
+    /**
+     * The snapshot read on a background thread and not applied yet or null.
+     */
+    private volatile SnapshotCache.Snapshot mStoredSnapshot;
 
     /**
      * The first day of the week.
@@ -207,11 +657,6 @@ public class CalendarView extends FrameLayout {
      */
     private Calendar mMaxDate;
 
-    /**
-     * Date format for parsing dates.
-     */
-    private final java.text.DateFormat mDateFormat = new SimpleDateFormat(DATE_FORMAT);
-
     /**
      * The current locale.
      */
@@ -233,6 +678,23 @@ public class CalendarView extends FrameLayout {
         public void onSelectedDayChange(CalendarView view, int year, int month, int dayOfMonth);
     }
 
+    /**
+     * The callback used to get the titles of the events drawn inside the days.
+     */
+    public interface EventTitleProvider {
+
+        /**
+         * Called on the UI thread when a week is bound or is about to be bound.
+         *
+         * @param year The year of the day.
+         * @param month The month of the day [0-11].
+         * @param dayOfMonth The day of the month.
+         * @param outTitles Receives the titles of the first events of the day.
+         * @return The number of titles put into outTitles.
+         */
+        public int getEventTitles(int year, int month, int dayOfMonth, String[] outTitles);
+    }
+
     public CalendarView(Context context) {
         this(context, null);
     }
@@ -259,6 +721,13 @@ public class CalendarView extends FrameLayout {
         if (TextUtils.isEmpty(maxDate) || !parseDate(maxDate, mMaxDate)) {
             parseDate(DEFAULT_MAX_DATE, mMaxDate);
         }
+        mUnbounded = attributesArray.getBoolean(R.styleable.CalendarView_unbounded, false);
+        boolean snapshotEnabled = attributesArray.getBoolean(
+                R.styleable.CalendarView_snapshotEnabled, false);
+        if (mUnbounded) {
+            parseDate(UNBOUNDED_MIN_DATE, mMinDate);
+            parseDate(UNBOUNDED_MAX_DATE, mMaxDate);
+        }
         if (mMaxDate.before(mMinDate)) {
             throw new IllegalArgumentException("Max date cannot be before min date.");
         }
@@ -299,6 +768,10 @@ public class CalendarView extends FrameLayout {
 		
 		mSundayPaint = new Paint(mWeekdayPaint);
 		mSundayPaint.setColor(sundayColor);
+
+        mEventTitlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        mEventTitlePaint.setTextSize(mDateTextSize * 2 / 3);
+        mEventTitlePaint.setColor(weekdayColor);
         
         mWeekSeparatorLineColor = attributesArray.getColor(
                 R.styleable.CalendarView_weekSeparatorLineColor, 0);
@@ -313,11 +786,24 @@ public class CalendarView extends FrameLayout {
         DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
         mWeekSeperatorLineWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
                 UNSCALED_WEEK_SEPARATOR_LINE_WIDTH, displayMetrics);
-
-        LayoutInflater layoutInflater = (LayoutInflater)getContext().getSystemService(Service.LAYOUT_INFLATER_SERVICE);
-        mContentView = (LinearLayout)layoutInflater.inflate(R.layout.calendar_view, null, false);
-        addView(mContentView);
-
+        mEventTitlePadding = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+                UNSCALED_EVENT_TITLE_PADDING, displayMetrics);
+
+        mWeekPainter = new WeekPainter(mWeekdayPaint, mSaturdayPaint, mSundayPaint);
+        mWeekPainter.setShowWeekNumber(mShowWeekNumber);
+        mWeekPainter.setWeekNumberColor(mWeekNumberColor);
+        mWeekPainter.setSelectedDateColor(mSelectedMonthDateColor);
+        mWeekPainter.setSeparator(mWeekSeparatorLineColor, mWeekSeperatorLineWidth);
+        mWeekPainter.setToday(mTodayColor, mWeekSeperatorLineWidth * 2);
+
+        // build the content in code, inflating it is the slowest part of construction
+        mContentView = new LinearLayout(context);
+        mContentView.setOrientation(LinearLayout.VERTICAL);
+        addView(mContentView, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+
+        updateWeekModel();
+        mToday = mWeekModel.getLocalDay(System.currentTimeMillis());
+        setHeatmapColors(DEFAULT_HEATMAP_LOW_COLOR, DEFAULT_HEATMAP_HIGH_COLOR);
         setUpHeader();
         setUpListView();
         setUpAdapter();
@@ -332,6 +818,11 @@ public class CalendarView extends FrameLayout {
             goTo(mTempDate, false, true, true);
         }
 
+        setSnapshotEnabled(snapshotEnabled);
+
+        // the keys move the selected date, see onNavigationKeyDown()
+        setFocusable(true);
+
         invalidate();
     }
 
@@ -345,10 +836,234 @@ public class CalendarView extends FrameLayout {
     public void setShownWeekCount(int count) {
         if (mShownWeekCount != count) {
             mShownWeekCount = count;
+            resetWeekHeights();
+            // bound rows keep their measured height unless they are forced
+            for (int i = mListView.getChildCount() - 1; i >= 0; i--) {
+                mListView.getChildAt(i).forceLayout();
+            }
+            mListView.requestLayout();
             invalidate();
         }
     }
 
+    /**
+     * Sets how the weeks are presented. In {@link #DISPLAY_MODE_MONTH_PAGER}
+     * one month is shown per page and swiping moves one month. Selection,
+     * range and listeners work the same in both modes, and
+     * {@link #addMonth(int, boolean, boolean)} with animation turns the page.
+     *
+     * <p>
+     * {@link #DISPLAY_MODE_YEAR} shows the twelve months of a year at a glance
+     * and scrolls vertically by years. Tapping a month shows it in the list of
+     * weeks.
+     *
+     * @param mode {@link #DISPLAY_MODE_WEEKS}, {@link #DISPLAY_MODE_MONTH_PAGER}
+     *            or {@link #DISPLAY_MODE_YEAR}.
+     */
+    public void setDisplayMode(int mode) {
+        if (mode != DISPLAY_MODE_WEEKS && mode != DISPLAY_MODE_MONTH_PAGER
+                && mode != DISPLAY_MODE_YEAR) {
+            throw new IllegalArgumentException("Unknown display mode: " + mode);
+        }
+        if (mDisplayMode == mode) {
+            return;
+        }
+        mDisplayMode = mode;
+        invalidateSnapshot();
+        if (mode != DISPLAY_MODE_WEEKS && mSnapshot != null) {
+            // the snapshot shows the list
+            mSnapshot.recycle();
+            mSnapshot = null;
+        }
+        if (mode == DISPLAY_MODE_MONTH_PAGER && mMonthPager == null) {
+            setUpMonthPager();
+        }
+        if (mode == DISPLAY_MODE_YEAR && mYearView == null) {
+            setUpYearView();
+        }
+        mListView.setVisibility(mode == DISPLAY_MODE_WEEKS ? VISIBLE : GONE);
+        if (mMonthPager != null) {
+            mMonthPager.setVisibility(mode == DISPLAY_MODE_MONTH_PAGER ? VISIBLE : GONE);
+        }
+        if (mYearView != null) {
+            mYearView.setVisibility(mode == DISPLAY_MODE_YEAR ? VISIBLE : GONE);
+        }
+        // every mini month of the year overview has its own layout
+        if (mDayNamesHeader != null) {
+            mDayNamesHeader.setVisibility(mode == DISPLAY_MODE_YEAR ? GONE : VISIBLE);
+        }
+        int selectedDay = mWeekModel.getLocalDay(mAdapter.mSelectedDate.getTimeInMillis());
+        if (mode == DISPLAY_MODE_MONTH_PAGER) {
+            mMonthPager.setCurrentItem(getMonthSectionIndex().getSectionForDay(selectedDay), false);
+            refreshMonthPages();
+        } else if (mode == DISPLAY_MODE_YEAR) {
+            mYearView.scrollToDay(selectedDay);
+            mYearView.clearMonths();
+        } else {
+            goTo(mAdapter.mSelectedDate, false, false, true);
+        }
+    }
+
+    /**
+     * Gets how the weeks are presented.
+     *
+     * @return {@link #DISPLAY_MODE_WEEKS}, {@link #DISPLAY_MODE_MONTH_PAGER} or
+     *         {@link #DISPLAY_MODE_YEAR}.
+     */
+    public int getDisplayMode() {
+        return mDisplayMode;
+    }
+
+    /**
+     * Creates the pager of the month pager mode. It shares the adapter state
+     * of the list, so every change of the weeks refreshes its pages.
+     */
+    private void setUpMonthPager() {
+        mMonthPager = new ViewPager(getContext());
+        mMonthPager.setAdapter(new MonthPagerAdapter());
+        // keep the months on both sides bound
+        mMonthPager.setOffscreenPageLimit(1);
+        mMonthPager.setOnPageChangeListener(new ViewPager.SimpleOnPageChangeListener() {
+            @Override
+            public void onPageScrollStateChanged(int state) {
+                // the pages are only kept in layers while they move
+                setMonthPageLayersEnabled(state != ViewPager.SCROLL_STATE_IDLE);
+            }
+        });
+        mContentView.addView(mMonthPager, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.MATCH_PARENT));
+        mAdapter.registerDataSetObserver(new DataSetObserver() {
+            @Override
+            public void onChanged() {
+                mMonthPager.getAdapter().notifyDataSetChanged();
+                refreshMonthPages();
+            }
+        });
+    }
+
+    /**
+     * Creates the view of the year overview mode. Its cached months are
+     * dropped whenever the weeks change.
+     */
+    private void setUpYearView() {
+        mYearView = new YearView(getContext());
+        mContentView.addView(mYearView, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.MATCH_PARENT));
+        mAdapter.registerDataSetObserver(new DataSetObserver() {
+            @Override
+            public void onChanged() {
+                mYearView.clearMonths();
+            }
+        });
+    }
+
+    /**
+     * Sets whether a scrubber is shown on the right edge of the weeks while
+     * scrolling. Dragging it jumps straight to the month at the dragged
+     * position, showing the month and year in a bubble. It can only be grabbed
+     * while it is shown, otherwise touches at the edge go to the weeks.
+     *
+     * @param enabled True to show the scrubber.
+     */
+    public void setScrubberEnabled(boolean enabled) {
+        if (mScrubberEnabled != enabled) {
+            mScrubberEnabled = enabled;
+            mListView.invalidate();
+        }
+    }
+
+    /**
+     * Gets whether a scrubber is shown on the right edge of the weeks.
+     *
+     * @return True if the scrubber is enabled.
+     */
+    public boolean isScrubberEnabled() {
+        return mScrubberEnabled;
+    }
+
+    /**
+     * Sets how fast a fling must be for the weeks to be drawn with reduced
+     * detail, only the month background and the dates. Full detail comes back
+     * when the fling slows down below the exit speed or the list settles.
+     *
+     * @param enterSpeed The speed in weeks per second above which detail is
+     *            reduced, or {@link Float#MAX_VALUE} to always draw full
+     *            detail.
+     * @param exitSpeed The speed in weeks per second below which full detail
+     *            comes back, at most enterSpeed.
+     */
+    public void setReducedDetailSpeeds(float enterSpeed, float exitSpeed) {
+        if (exitSpeed > enterSpeed) {
+            throw new IllegalArgumentException("exitSpeed: " + exitSpeed
+                    + " greater than enterSpeed: " + enterSpeed);
+        }
+        mReducedDetailEnterSpeed = enterSpeed;
+        mReducedDetailExitSpeed = exitSpeed;
+    }
+
+    /**
+     * Gets the number of weeks drawn with reduced detail since the last
+     * {@link #resetDrawCounts()}.
+     *
+     * @return The number of reduced week draws.
+     */
+    public int getReducedDrawCount() {
+        return mReducedDrawCount;
+    }
+
+    /**
+     * Gets the number of weeks drawn with full detail since the last
+     * {@link #resetDrawCounts()}.
+     *
+     * @return The number of full week draws.
+     */
+    public int getFullDrawCount() {
+        return mFullDrawCount;
+    }
+
+    /**
+     * Resets the reduced and full draw counts.
+     */
+    public void resetDrawCounts() {
+        mReducedDrawCount = 0;
+        mFullDrawCount = 0;
+    }
+
+    /**
+     * Switches between reduced and full detail. Only the rows on screen are
+     * drawn again.
+     */
+    private void setReducedDetail(boolean reduced) {
+        if (mReducedDetail == reduced) {
+            return;
+        }
+        mReducedDetail = reduced;
+        for (int i = mListView.getChildCount() - 1; i >= 0; i--) {
+            mListView.getChildAt(i).invalidate();
+        }
+        mListView.invalidate();
+    }
+
+    /**
+     * Sets whether the number of shown weeks can be changed with a pinch.
+     * While pinching the last drawn weeks are scaled and the weeks are bound
+     * again only when the number of shown weeks passes a whole number.
+     *
+     * @param enabled True to zoom with a pinch.
+     */
+    public void setPinchZoomEnabled(boolean enabled) {
+        mPinchZoomEnabled = enabled;
+    }
+
+    /**
+     * Gets whether the number of shown weeks can be changed with a pinch.
+     *
+     * @return True if pinch zoom is enabled.
+     */
+    public boolean isPinchZoomEnabled() {
+        return mPinchZoomEnabled;
+    }
+
     /**
      * Gets the number of weeks to be shown.
      *
@@ -370,6 +1085,7 @@ public class CalendarView extends FrameLayout {
     public void setWeekNumberColor(int color) {
         if (mWeekNumberColor != color) {
             mWeekNumberColor = color;
+            mWeekPainter.setWeekNumberColor(color);
             if (mShowWeekNumber) {
                 invalidateAllWeekViews();
             }
@@ -397,6 +1113,7 @@ public class CalendarView extends FrameLayout {
     public void setWeekSeparatorLineColor(int color) {
         if (mWeekSeparatorLineColor != color) {
             mWeekSeparatorLineColor = color;
+            mWeekPainter.setSeparator(color, mWeekSeperatorLineWidth);
             invalidateAllWeekViews();
         }
     }
@@ -465,33 +1182,12 @@ public class CalendarView extends FrameLayout {
      *
      * @param minDate The minimal supported date.
      *
+     * @see #setDateRange(long, long)
+     *
      * @attr ref android.R.styleable#CalendarView_minDate
      */
     public void setMinDate(long minDate) {
-        mTempDate.setTimeInMillis(minDate);
-        if (isSameDate(mTempDate, mMinDate)) {
-            return;
-        }
-        mMinDate.setTimeInMillis(minDate);
-        // make sure the current date is not earlier than
-        // the new min date since the latter is used for
-        // calculating the indices in the adapter thus
-        // avoiding out of bounds error
-        Calendar date = mAdapter.mSelectedDate;
-        if (date.before(mMinDate)) {
-            mAdapter.setSelectedDay(mMinDate);
-        }
-        // reinitialize the adapter since its range depends on min date
-        mAdapter.init();
-        if (date.before(mMinDate)) {
-            setDate(mTempDate.getTimeInMillis());
-        } else {
-            // we go to the current date to force the ListView to query its
-            // adapter for the shown views since we have changed the adapter
-            // range and the base from which the later calculates item indices
-            // note that calling setDate will not work since the date is the same
-            goTo(date, false, true, false);
-        }
+        setDateRange(minDate, mMaxDate.getTimeInMillis());
     }
 
     /**
@@ -517,28 +1213,372 @@ public class CalendarView extends FrameLayout {
      *
      * @param maxDate The maximal supported date.
      *
+     * @see #setDateRange(long, long)
+     *
      * @attr ref android.R.styleable#CalendarView_maxDate
      */
     public void setMaxDate(long maxDate) {
+        setDateRange(mMinDate.getTimeInMillis(), maxDate);
+    }
+
+    /**
+     * Sets the minimal and maximal dates supported by this {@link CalendarView}
+     * in milliseconds since January 1, 1970 00:00:00 in
+     * {@link TimeZone#getDefault()} time zone.
+     * <p>
+     * The adapter is rebuilt only once and the week currently at the top of the
+     * list is kept at the same pixel offset, so growing the range at the top
+     * does not make the visible weeks jump. Rows the list hands back for the
+     * week they already show keep what they have bound.
+     * <p>
+     * The selected date is moved into the new range if it falls outside.
+     *
+     * @param minDate The minimal supported date.
+     * @param maxDate The maximal supported date.
+     *
+     * @throws IllegalArgumentException if the max date is before the min date.
+     *
+     * @see #setMinDate(long)
+     * @see #setMaxDate(long)
+     */
+    public void setDateRange(long minDate, long maxDate) {
+        updateDateRange(minDate, maxDate);
+    }
+
+    /**
+     * Sets the range of dates, see {@link #setDateRange(long, long)}.
+     *
+     * @return False if the range did not change and nothing was done.
+     */
+    private boolean updateDateRange(long minDate, long maxDate) {
+        if (maxDate < minDate) {
+            throw new IllegalArgumentException("Max date cannot be before min date.");
+        }
+        mTempDate.setTimeInMillis(minDate);
+        boolean minDateChanged = !isSameDate(mTempDate, mMinDate);
         mTempDate.setTimeInMillis(maxDate);
-        if (isSameDate(mTempDate, mMaxDate)) {
-            return;
+        boolean maxDateChanged = !isSameDate(mTempDate, mMaxDate);
+        if (!minDateChanged && !maxDateChanged) {
+            return false;
+        }
+
+        // remember the first shown week by its date since its position depends on min date
+        View firstChild = mListView.getChildAt(0);
+        int firstShownWeekDay = 0;
+        int firstShownWeekTop = 0;
+        int firstShownPosition = mListView.getFirstVisiblePosition();
+        int oldMinDay = mWeekModel.getMinDay();
+        int oldMaxDay = mWeekModel.getMaxDay();
+        if (firstChild != null) {
+            firstShownWeekDay = mWeekModel.getWeekStartDay(
+                    mAdapter.getWeekForPosition(mListView.getFirstVisiblePosition()));
+            firstShownWeekTop = firstChild.getTop();
         }
+
+        mMinDate.setTimeInMillis(minDate);
         mMaxDate.setTimeInMillis(maxDate);
-        // reinitialize the adapter since its range depends on max date
-        mAdapter.init();
+        updateWeekModel();
+        // a date set by keys, add*() or postDate() in this frame must stay
+        // inside the range too
+        clampPendingAdd();
+
+        // make sure the selected date is inside the new range since the latter
+        // is used for calculating the indices in the adapter thus avoiding out
+        // of bounds error
         Calendar date = mAdapter.mSelectedDate;
-        if (date.after(mMaxDate)) {
-            setDate(mMaxDate.getTimeInMillis());
-        } else {
-            // we go to the current date to force the ListView to query its
-            // adapter for the shown views since we have changed the adapter
-            // range and the base from which the later calculates item indices
-            // note that calling setDate will not work since the date is the same
-            goTo(date, false, true, false);
+        boolean selectedDateMoved = false;
+        if (date.before(mMinDate)) {
+            mAdapter.setSelectedDay(mMinDate);
+            selectedDateMoved = true;
+        } else if (date.after(mMaxDate)) {
+            mAdapter.setSelectedDay(mMaxDate);
+            selectedDateMoved = true;
+        }
+
+        // reinitialize the adapter once since its range depends on min and max date
+        mAdapter.init();
+
+        if (firstChild == null) {
+            // nothing is laid out yet, just center the selected date
+            mAdapter.notifyDataSetChanged();
+            mListView.scrollToPosition(mAdapter.getPositionForWeek(mAdapter.mSelectedWeek),
+                    false, true);
+            return true;
+        }
+        int firstShownWeekIndex = Math.max(0, Math.min(mWeekModel.getWeekForDay(firstShownWeekDay),
+                mAdapter.mTotalWeekCount - 1));
+        if (!mAdapter.placeWeekAt(firstShownWeekIndex, firstShownPosition)) {
+            mAdapter.centerWindowAt(firstShownWeekIndex);
+        }
+        mAdapter.notifyRangeChanged(oldMinDay, oldMaxDay);
+        mListView.setSelectionFromTop(mAdapter.getPositionForWeek(firstShownWeekIndex),
+                firstShownWeekTop);
+        if (selectedDateMoved) {
+            mListView.scrollToPosition(mAdapter.getPositionForWeek(mAdapter.mSelectedWeek),
+                    false, false);
+        }
+        return true;
+    }
+
+    /**
+     * Sets whether the calendar can be scrolled over the widest supported range.
+     * <p>
+     * In unbounded mode the list only exposes a fixed window of weeks around
+     * the shown ones and silently moves that window when the user scrolls near
+     * its edge, so the cost of the list does not depend on the range. Enabling
+     * it sets the range to 01/01/1601 - 12/31/9999, disabling it keeps the
+     * current range.
+     *
+     * @param unbounded True to enable unbounded mode.
+     *
+     * @attr ref android.R.styleable#CalendarView_unbounded
+     */
+    public void setUnbounded(boolean unbounded) {
+        if (mUnbounded == unbounded) {
+            return;
+        }
+        mUnbounded = unbounded;
+        boolean rangeChanged = false;
+        if (unbounded) {
+            Calendar minDate = (Calendar) mMinDate.clone();
+            Calendar maxDate = (Calendar) mMaxDate.clone();
+            parseDate(UNBOUNDED_MIN_DATE, minDate);
+            parseDate(UNBOUNDED_MAX_DATE, maxDate);
+            rangeChanged = updateDateRange(minDate.getTimeInMillis(), maxDate.getTimeInMillis());
+        }
+        if (!rangeChanged) {
+            // the adapter count depends on the mode, a new range has set it already
+            mAdapter.init();
+            mAdapter.notifyDataSetChanged();
+        }
+        mListView.scrollToPosition(mAdapter.getPositionForWeek(mAdapter.mSelectedWeek), false, true);
+    }
+
+    /**
+     * Gets whether the calendar is in unbounded mode.
+     *
+     * @return True if unbounded mode is enabled.
+     *
+     * @attr ref android.R.styleable#CalendarView_unbounded
+     */
+    public boolean isUnbounded() {
+        return mUnbounded;
+    }
+
+    /**
+     * Sets whether a picture of the settled calendar is kept in app-private
+     * storage. When a picture matching the current configuration and date was
+     * stored by a previous start it is drawn in the first frame and the rows
+     * are bound for the next frame.
+     * <p>
+     * The picture is stored per view id, so give the view an id if several
+     * calendars use snapshots. It is dropped when the locale, range, first day
+     * of week, shown weeks, display mode or the current date change, and it is
+     * read on a background thread so it is only shown if it is ready before
+     * the first layout.
+     *
+     * @param enabled True to keep a snapshot.
+     *
+     * @attr ref android.R.styleable#CalendarView_snapshotEnabled
+     */
+    public void setSnapshotEnabled(boolean enabled) {
+        if ((mSnapshotCache != null) == enabled) {
+            return;
+        }
+        removeCallbacks(mSaveSnapshotRunnable);
+        mSnapshotUpToDate = false;
+        if (!enabled) {
+            mSnapshotCache = null;
+            showLiveContent();
+            return;
+        }
+        final SnapshotCache snapshotCache = new SnapshotCache(new File(getContext().getFilesDir(),
+                SNAPSHOT_FILE_PREFIX + (getId() == NO_ID ? "default" : Integer.toString(getId()))));
+        mSnapshotCache = snapshotCache;
+        if (mListView.getChildCount() == 0 && mDisplayMode == DISPLAY_MODE_WEEKS) {
+            // nothing is shown yet, so a stored snapshot read before the
+            // first layout can be shown instead, see applyStoredSnapshot()
+            final String key = getSnapshotKey();
+            final int week = mAdapter.mSelectedWeek;
+            SnapshotCache.getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    SnapshotCache.Snapshot snapshot = snapshotCache.read(key, week);
+                    if (snapshot != null) {
+                        mStoredSnapshot = snapshot;
+                        mMainHandler.post(mApplyStoredSnapshotRunnable);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Shows the snapshot read on the background thread if the rows are not
+     * laid out yet, or drops it.
+     */
+    private void applyStoredSnapshot() {
+        SnapshotCache.Snapshot snapshot = mStoredSnapshot;
+        if (snapshot == null) {
+            return;
+        }
+        mStoredSnapshot = null;
+        int position = mAdapter.getPositionForWeek(snapshot.firstWeek);
+        if (mSnapshotCache == null || mListView.getChildCount() > 0 || mSnapshot != null
+                || mDisplayMode != DISPLAY_MODE_WEEKS || snapshot.week != mAdapter.mSelectedWeek
+                || position < 0 || position >= mAdapter.getCount()) {
+            snapshot.bitmap.recycle();
+            return;
+        }
+        mSnapshot = snapshot.bitmap;
+        mSnapshotWeek = snapshot.week;
+        mSnapshotUpToDate = true;
+        // the rows bound after the snapshot start where the picture was taken
+        mListView.restoreSelectionFromTop(position, snapshot.firstWeekTop);
+        mListView.setVisibility(GONE);
+        invalidate();
+    }
+
+    private final Runnable mApplyStoredSnapshotRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyStoredSnapshot();
+        }
+    };
+
+    /**
+     * Marks the stored snapshot as outdated so a new one is taken once the
+     * calendar settles.
+     */
+    private void invalidateSnapshot() {
+        if (mSnapshotCache == null) {
+            return;
+        }
+        removeCallbacks(mSaveSnapshotRunnable);
+        mSnapshotUpToDate = false;
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        // a snapshot read in time replaces the first layout of the rows
+        applyStoredSnapshot();
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    }
+
+    /**
+     * Gets whether a snapshot is kept.
+     *
+     * @return True if snapshots are enabled.
+     *
+     * @attr ref android.R.styleable#CalendarView_snapshotEnabled
+     */
+    public boolean isSnapshotEnabled() {
+        return mSnapshotCache != null;
+    }
+
+    /**
+     * @return The key of everything a snapshot depends on except its size,
+     *         selected week and scroll position.
+     */
+    private String getSnapshotKey() {
+        return mWeekModel.getMinDay() + "," + mWeekModel.getMaxDay() + "," + mFirstDayOfWeek
+                + "," + mCurrentLocale + "," + mTempDate.getTimeZone().getID()
+                + "," + mWeekModel.getLocalDay(System.currentTimeMillis())
+                + "," + mShownWeekCount + "," + mShowWeekNumber + "," + mDisplayMode;
+    }
+
+    /**
+     * Drops the snapshot and lets the rows be bound.
+     */
+    private void showLiveContent() {
+        if (mSnapshot != null) {
+            mSnapshot.recycle();
+            mSnapshot = null;
+        }
+        mListView.setVisibility(VISIBLE);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mSnapshot != null && mListView.getVisibility() != VISIBLE) {
+            if (mSnapshot.getWidth() == getWidth() && mSnapshot.getHeight() == getHeight()
+                    && mSnapshotWeek == mAdapter.mSelectedWeek) {
+                canvas.drawBitmap(mSnapshot, 0, 0, null);
+                // bind the real rows for the next frame
+                post(mShowLiveContentRunnable);
+                return;
+            }
+            // the snapshot does not fit anymore
+            mSnapshotUpToDate = false;
+            showLiveContent();
+        }
+        super.dispatchDraw(canvas);
+        if (mListView.getChildCount() > 0) {
+            if (mSnapshot != null) {
+                // the first real frame is drawn
+                mSnapshot.recycle();
+                mSnapshot = null;
+            }
+            if (mSnapshotCache != null && !mSnapshotUpToDate) {
+                mSnapshotUpToDate = true;
+                postDelayed(mSaveSnapshotRunnable, SNAPSHOT_SAVE_DELAY);
+            }
         }
     }
 
+    /**
+     * Binds the real rows after a snapshot has been drawn.
+     */
+    private final Runnable mShowLiveContentRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mListView.setVisibility(VISIBLE);
+        }
+    };
+
+    /**
+     * Takes a picture of the calendar once it has settled and writes it on a
+     * background thread.
+     */
+    private final Runnable mSaveSnapshotRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final SnapshotCache snapshotCache = mSnapshotCache;
+            if (snapshotCache == null || getWidth() == 0 || getHeight() == 0) {
+                return;
+            }
+            if (mScrollState != AbsListView.OnScrollListener.SCROLL_STATE_IDLE) {
+                // not settled, try again when the scroll stops
+                mSnapshotUpToDate = false;
+                return;
+            }
+            if (mDisplayMode != DISPLAY_MODE_WEEKS) {
+                // only the list of weeks is restored from a snapshot
+                return;
+            }
+            View firstChild = mListView.getChildAt(0);
+            if (firstChild == null) {
+                mSnapshotUpToDate = false;
+                return;
+            }
+            final Bitmap bitmap = Bitmap.createBitmap(getWidth(), getHeight(),
+                    Bitmap.Config.ARGB_8888);
+            draw(new Canvas(bitmap));
+            final String key = getSnapshotKey();
+            final int week = mAdapter.mSelectedWeek;
+            final int firstWeek = mAdapter.getWeekForPosition(mListView.getFirstVisiblePosition());
+            final int firstWeekTop = firstChild.getTop();
+            SnapshotCache.getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    snapshotCache.write(bitmap, key, week, firstWeek, firstWeekTop);
+                    bitmap.recycle();
+                }
+            });
+        }
+    };
+
     /**
      * Sets whether to show the week number.
      *
@@ -551,6 +1591,7 @@ public class CalendarView extends FrameLayout {
             return;
         }
         mShowWeekNumber = showWeekNumber;
+        mWeekPainter.setShowWeekNumber(showWeekNumber);
         mAdapter.notifyDataSetChanged();
         setUpHeader();
     }
@@ -605,18 +1646,454 @@ public class CalendarView extends FrameLayout {
             return;
         }
         mFirstDayOfWeek = firstDayOfWeek;
+        updateWeekModel();
         mAdapter.init();
         mAdapter.notifyDataSetChanged();
         setUpHeader();
     }
 
     /**
-     * Sets the listener to be notified upon selected date change.
+     * Sets how the week number column numbers the weeks of the year. When
+     * the weeks of the calendar do not start on the same day as the numbered
+     * weeks, a row shows the number of the week holding most of its days.
      *
-     * @param listener The listener to be notified.
+     * @param weekNumbering One of {@link #WEEK_NUMBERING_LOCALE},
+     *            {@link #WEEK_NUMBERING_ISO} or {@link #WEEK_NUMBERING_US}.
      */
-    public void setOnDateChangeListener(OnDateChangeListener listener) {
-        mOnDateChangeListener = listener;
+    public void setWeekNumbering(int weekNumbering) {
+        if (weekNumbering != WEEK_NUMBERING_LOCALE && weekNumbering != WEEK_NUMBERING_ISO
+                && weekNumbering != WEEK_NUMBERING_US) {
+            throw new IllegalArgumentException("Unknown week numbering: " + weekNumbering);
+        }
+        if (mWeekNumbering == weekNumbering) {
+            return;
+        }
+        mWeekNumbering = weekNumbering;
+        updateWeekModel();
+        mAdapter.notifyDataSetChanged();
+        refreshMonthPages();
+        invalidateSnapshot();
+    }
+
+    /**
+     * Gets how the week number column numbers the weeks of the year.
+     *
+     * @return The week numbering.
+     */
+    public int getWeekNumbering() {
+        return mWeekNumbering;
+    }
+
+    /**
+     * Sets the time zone local days are found in, the default is
+     * {@link TimeZone#getDefault()}. The range and the selected date keep
+     * their local dates.
+     *
+     * @param timeZone The time zone, or null to follow the default time zone
+     *            also when the user changes it.
+     */
+    public void setTimeZone(TimeZone timeZone) {
+        mExplicitTimeZone = timeZone;
+        applyTimeZone(timeZone != null ? timeZone : TimeZone.getDefault());
+    }
+
+    /**
+     * Moves to the current default time zone unless a time zone was set.
+     */
+    private void followDefaultTimeZone() {
+        if (mExplicitTimeZone == null) {
+            applyTimeZone(TimeZone.getDefault());
+        }
+    }
+
+    private void applyTimeZone(TimeZone timeZone) {
+        if (timeZone.getID().equals(mTempDate.getTimeZone().getID())) {
+            return;
+        }
+        // the pending date becomes the selected one
+        applyPendingAdd();
+        int minDay = mWeekModel.getMinDay();
+        int maxDay = mWeekModel.getMaxDay();
+        int selectedDay = mWeekModel.getLocalDay(mAdapter.mSelectedDate.getTimeInMillis());
+
+        mTempDate.setTimeZone(timeZone);
+        mMinDate.setTimeZone(timeZone);
+        mMinDate.setTimeInMillis(WeekModel.getMillisForLocalDay(minDay, timeZone));
+        mMaxDate.setTimeZone(timeZone);
+        mMaxDate.setTimeInMillis(WeekModel.getMillisForLocalDay(maxDay, timeZone));
+        mAdapter.mSelectedDate.setTimeZone(timeZone);
+        mAdapter.mSelectedDate.setTimeInMillis(
+                WeekModel.getMillisForLocalDay(selectedDay, timeZone));
+        mPendingAddDate = null;
+        // rebuilds the offset table of the new time zone
+        updateWeekModel();
+        mToday = mWeekModel.getLocalDay(System.currentTimeMillis());
+        if (getWindowToken() != null) {
+            // midnight is at another time
+            updateToday();
+        }
+
+        mAdapter.init();
+        mAdapter.notifyDataSetChanged();
+        refreshMonthPages();
+    }
+
+    /**
+     * Gets the time zone local days are found in.
+     *
+     * @return The time zone.
+     */
+    public TimeZone getTimeZone() {
+        return mTempDate.getTimeZone();
+    }
+
+    /**
+     * Sets the pool to share week rows with other calendars. When this view is
+     * detached its rows are put into the pool and rows created with the same
+     * context are taken from it before new ones are created.
+     *
+     * @param pool The pool or null to stop sharing rows.
+     */
+    public void setWeekViewPool(WeekViewPool pool) {
+        mWeekViewPool = pool;
+    }
+
+    /**
+     * Gets the pool the week rows are shared through.
+     *
+     * @return The pool or null.
+     */
+    public WeekViewPool getWeekViewPool() {
+        return mWeekViewPool;
+    }
+
+    /**
+     * Sets the calendar system whose dates are drawn small in the corner of
+     * the days, e.g. {@link HijriChronology}. Days outside the range of the
+     * chronology get no secondary date.
+     *
+     * @param chronology The chronology or null to draw no secondary dates.
+     */
+    public void setSecondaryChronology(Chronology chronology) {
+        if (mSecondaryChronology == chronology) {
+            return;
+        }
+        mSecondaryChronology = chronology;
+        mAdapter.notifyDataSetChanged();
+        refreshMonthPages();
+        invalidateSnapshot();
+    }
+
+    /**
+     * Gets the calendar system whose dates are drawn in the corner of the days.
+     *
+     * @return The chronology or null.
+     */
+    public Chronology getSecondaryChronology() {
+        return mSecondaryChronology;
+    }
+
+    /**
+     * Sets the color of the dates of the secondary chronology.
+     *
+     * @param color The secondary date color.
+     */
+    public void setSecondaryDateColor(int color) {
+        if (mSecondaryDateColor != color) {
+            mSecondaryDateColor = color;
+            invalidateAllWeekViews();
+        }
+    }
+
+    /**
+     * Gets the color of the dates of the secondary chronology.
+     *
+     * @return The secondary date color.
+     */
+    public int getSecondaryDateColor() {
+        return mSecondaryDateColor;
+    }
+
+    /**
+     * Sets the store of per-day values marked in the calendar. Days whose value
+     * in the given field is not 0 get a dot under their date. The rows read
+     * their seven values straight from the mapped file when they are bound.
+     *
+     * @param store The store or null to mark no days.
+     * @param field The index of the value in the record of a day.
+     */
+    public void setDayDataStore(DayDataStore store, int field) {
+        if (store != null && (field < 0 || field >= store.getFieldCount())) {
+            throw new IllegalArgumentException("field " + field + " of "
+                    + store.getFieldCount());
+        }
+        mDayDataStore = store;
+        mDayDataField = field;
+        mAdapter.notifyDataSetChanged();
+        invalidateSnapshot();
+    }
+
+    /**
+     * Gets the store of per-day values marked in the calendar.
+     *
+     * @return The store or null.
+     */
+    public DayDataStore getDayDataStore() {
+        return mDayDataStore;
+    }
+
+    /**
+     * Creates a renderer drawing months like this calendar, with its colors,
+     * first day of week, time zone and day data marks. Later changes of this
+     * calendar do not affect the renderer.
+     *
+     * @see CalendarPdfExporter
+     */
+    public CalendarRenderer createRenderer() {
+        CalendarRenderer renderer = new CalendarRenderer();
+        renderer.setDateColors(mWeekdayPaint.getColor(), mSaturdayPaint.getColor(),
+                mSundayPaint.getColor());
+        renderer.setDateTextSize(mDateTextSize);
+        renderer.setShowWeekNumber(mShowWeekNumber);
+        renderer.setWeekNumberColor(mWeekNumberColor);
+        renderer.setSelectedDateColor(mSelectedMonthDateColor);
+        renderer.setWeekSeparator(mWeekSeparatorLineColor, mWeekSeperatorLineWidth);
+        renderer.setFirstDayOfWeek(mFirstDayOfWeek);
+        renderer.setWeekNumbering(mWeekNumbering);
+        renderer.setLocale(mCurrentLocale);
+        renderer.setTimeZone(mTempDate.getTimeZone());
+        renderer.setDayDataStore(mDayDataStore, mDayDataField);
+        return renderer;
+    }
+
+    /**
+     * Sets the provider of the event titles drawn inside the days. Up to two
+     * titles are drawn under the date, ellipsized to the width of the day.
+     * Ellipsized titles are cached. While scrolling, the provider is asked
+     * on the UI thread for the titles of the rows coming next, and only
+     * their measuring happens on a background thread, so the provider
+     * should answer from memory.
+     *
+     * @param provider The provider or null to draw no event titles.
+     */
+    public void setEventTitleProvider(EventTitleProvider provider) {
+        mEventTitleProvider = provider;
+        clearPrefetchedEventTitles();
+        resetWeekHeights();
+        mAdapter.notifyDataSetChanged();
+        invalidateSnapshot();
+    }
+
+    /**
+     * Gets the provider of the event titles drawn inside the days.
+     *
+     * @return The provider or null.
+     */
+    public EventTitleProvider getEventTitleProvider() {
+        return mEventTitleProvider;
+    }
+
+    /**
+     * Sets whether the height of each week comes from its content. Weeks are
+     * at least as high as with a fixed height and grow to fit all their event
+     * titles. The measured heights are kept in an index so the offset of any
+     * week is known without laying out the weeks before it.
+     *
+     * @param variable True if weeks grow with their content.
+     */
+    public void setVariableWeekHeight(boolean variable) {
+        if (variable == (mRowHeightIndex != null)) {
+            return;
+        }
+        if (variable) {
+            mRowHeightIndex = new RowHeightIndex();
+            mRowHeightIndex.reset(mWeekModel.getWeekCount(), getUniformWeekHeight());
+        } else {
+            mRowHeightIndex = null;
+        }
+        mAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Gets whether the height of each week comes from its content.
+     *
+     * @return True if weeks grow with their content.
+     */
+    public boolean isVariableWeekHeight() {
+        return mRowHeightIndex != null;
+    }
+
+    /**
+     * @return The height of a week if all weeks have the same height.
+     */
+    private int getUniformWeekHeight() {
+        return (mListView.getHeight() - mListView.getPaddingTop() - mListView.getPaddingBottom())
+                / mShownWeekCount;
+    }
+
+    /**
+     * @return The height of the given week, measured or expected.
+     */
+    private int getWeekHeight(int week) {
+        int uniformHeight = getUniformWeekHeight();
+        if (mRowHeightIndex != null && mRowHeightIndex.getDefaultHeight() == uniformHeight) {
+            return mRowHeightIndex.getHeight(week);
+        }
+        return uniformHeight;
+    }
+
+    /**
+     * Forgets the measured week heights after their content changed.
+     */
+    private void resetWeekHeights() {
+        if (mRowHeightIndex != null) {
+            mRowHeightIndex.reset(mWeekModel.getWeekCount(), getUniformWeekHeight());
+        }
+    }
+
+    /**
+     * @return The width available for an event title in a row of the given
+     *         width.
+     */
+    private int getEventTitleWidth(int rowWidth) {
+        int cellCount = mShowWeekNumber ? mDaysPerWeek + 1 : mDaysPerWeek;
+        return rowWidth / cellCount - 2 * mEventTitlePadding;
+    }
+
+    /**
+     * Gets the event titles of the given week from the provider on this
+     * thread and measures them on a background thread.
+     */
+    private void prefetchEventTitles(int week) {
+        int width = getEventTitleWidth(mListView.getWidth());
+        if (width <= 0 || week < 0 || (!mUnbounded && week >= mWeekModel.getWeekCount())) {
+            return;
+        }
+        // a week stays in its slot until it is bound while the rows move on
+        int slotCount = 2 * mShownWeekCount + 1;
+        if (mPrefetchedWeeks == null || mPrefetchedWeeks.length != slotCount) {
+            mPrefetchedTitles = new String[slotCount][];
+            mPrefetchedWeeks = new int[slotCount];
+        }
+        int slot = WeekModel.floorMod(week, slotCount);
+        if (mPrefetchedTitles[slot] != null && mPrefetchedWeeks[slot] == week) {
+            // measured when it was a screen ahead already
+            return;
+        }
+        // the background thread reads the titles, so every week gets its own
+        String[] titles = new String[DAYS_PER_WEEK * MAX_EVENT_TITLES_PER_DAY];
+        getEventTitles(week, titles);
+        mPrefetchedTitles[slot] = titles;
+        mPrefetchedWeeks[slot] = week;
+        mEventTextCache.prefetch(titles, width, mEventTitlePaint);
+    }
+
+    /**
+     * Gets the event titles of a week from the provider, or the ones found
+     * when the week was measured ahead if it was not bound since.
+     *
+     * @param outTitles Receives {@link #MAX_EVENT_TITLES_PER_DAY} titles per
+     *            day, null where a day has fewer.
+     * @return The largest number of titles of a day, at most
+     *         {@link #MAX_EVENT_TITLES_PER_DAY}.
+     */
+    private int getEventTitles(int week, String[] outTitles) {
+        if (mPrefetchedTitles != null) {
+            int slot = WeekModel.floorMod(week, mPrefetchedWeeks.length);
+            String[] titles = mPrefetchedTitles[slot];
+            if (titles != null && mPrefetchedWeeks[slot] == week) {
+                // used once, a later bind of the week asks the provider again
+                mPrefetchedTitles[slot] = null;
+                System.arraycopy(titles, 0, outTitles, 0, titles.length);
+                return getEventTitleLines(titles);
+            }
+        }
+        int startDay = mWeekModel.getWeekStartDay(week);
+        for (int i = 0; i < DAYS_PER_WEEK; i++) {
+            int day = startDay + i;
+            int count = 0;
+            // days outside the valid range are not drawn
+            if (day >= mWeekModel.getMinDay() && day <= mWeekModel.getMaxDay()) {
+                int monthIndex = WeekModel.getMonthIndex(day);
+                count = mEventTitleProvider.getEventTitles(WeekModel.floorDiv(monthIndex, 12),
+                        WeekModel.floorMod(monthIndex, 12), WeekModel.getDayOfMonth(day),
+                        mDayEventTitles);
+            }
+            for (int j = 0; j < MAX_EVENT_TITLES_PER_DAY; j++) {
+                outTitles[i * MAX_EVENT_TITLES_PER_DAY + j] = j < count ? mDayEventTitles[j] : null;
+            }
+        }
+        return getEventTitleLines(outTitles);
+    }
+
+    /**
+     * @return The largest number of titles of a day in the given titles.
+     */
+    private static int getEventTitleLines(String[] titles) {
+        int lines = 0;
+        for (int i = 0; i < titles.length; i++) {
+            if (titles[i] != null) {
+                lines = Math.max(lines, i % MAX_EVENT_TITLES_PER_DAY + 1);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Forgets the event titles found ahead, e.g. after the weeks moved or the
+     * provider changed.
+     */
+    private void clearPrefetchedEventTitles() {
+        mPrefetchedTitles = null;
+        mPrefetchedWeeks = null;
+    }
+
+    /**
+     * Draws the weeks as a heatmap instead of with month backgrounds. Each day
+     * is filled with the color of its intensity, see
+     * {@link #setHeatmapColors(int, int)}. Days without a value are drawn with
+     * intensity 0.
+     *
+     * @param firstDate The date of the first intensity in milliseconds.
+     * @param intensities The intensities of consecutive days from 0 to 255,
+     *            read as unsigned bytes, or null to draw month backgrounds.
+     *            The array is not copied, call this again after changing it.
+     */
+    public void setHeatmapIntensities(long firstDate, byte[] intensities) {
+        mHeatmapIntensities = intensities;
+        mHeatmapFirstDay = mWeekModel.getLocalDay(firstDate);
+        mAdapter.notifyDataSetChanged();
+        invalidateSnapshot();
+    }
+
+    /**
+     * Sets the heatmap colors. The colors of the intensities in between are
+     * interpolated once here, drawing only looks them up.
+     *
+     * @param lowColor The color of intensity 0.
+     * @param highColor The color of intensity 255.
+     */
+    public void setHeatmapColors(int lowColor, int highColor) {
+        int last = HEATMAP_LEVELS - 1;
+        for (int i = 0; i < HEATMAP_LEVELS; i++) {
+            mHeatmapColors[i] = Color.argb(
+                    (Color.alpha(lowColor) * (last - i) + Color.alpha(highColor) * i) / last,
+                    (Color.red(lowColor) * (last - i) + Color.red(highColor) * i) / last,
+                    (Color.green(lowColor) * (last - i) + Color.green(highColor) * i) / last,
+                    (Color.blue(lowColor) * (last - i) + Color.blue(highColor) * i) / last);
+        }
+        if (mHeatmapIntensities != null) {
+            mAdapter.notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Sets the listener to be notified upon selected date change.
+     *
+     * @param listener The listener to be notified.
+     */
+    public void setOnDateChangeListener(OnDateChangeListener listener) {
+        mOnDateChangeListener = listener;
     }
 
     /**
@@ -626,6 +2103,9 @@ public class CalendarView extends FrameLayout {
      * @return The selected date.
      */
     public long getDate() {
+        if (mAddPending) {
+            return mPendingAddDate.getTimeInMillis();
+        }
         return mAdapter.mSelectedDate.getTimeInMillis();
     }
 
@@ -661,6 +2141,7 @@ public class CalendarView extends FrameLayout {
      * @see #setMaxDate(long)
      */
     public void setDate(long date, boolean animate, boolean center) {
+        cancelPendingAdd();
         mTempDate.setTimeInMillis(date);
         if (isSameDate(mTempDate, mAdapter.mSelectedDate)) {
             return;
@@ -668,6 +2149,45 @@ public class CalendarView extends FrameLayout {
         goTo(mTempDate, animate, true, center);
     }
     
+    /**
+     * Sets the selected date from any thread. The date is handed to the UI
+     * thread without locking and is applied in the next frame, if several
+     * dates are posted before that only the latest one is applied. A date
+     * outside the range is clamped to it.
+     *
+     * @param date The date in milliseconds since January 1, 1970 00:00:00.
+     *
+     * @see #setDate(long)
+     */
+    public void postDate(long date) {
+        if (date == NO_POSTED_DATE) {
+            // the one value which cannot be posted, as early as any other out of range date
+            date++;
+        }
+        mPostedDate.set(date);
+        if (mPostedDateScheduled.compareAndSet(false, true)) {
+            mMainHandler.post(mApplyPostedDateRunnable);
+        }
+    }
+
+    /**
+     * Applies the latest posted date, on the UI thread.
+     */
+    private final Runnable mApplyPostedDateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // cleared first so a date posted from now on schedules another run
+            mPostedDateScheduled.set(false);
+            long date = mPostedDate.getAndSet(NO_POSTED_DATE);
+            if (date == NO_POSTED_DATE) {
+                return;
+            }
+            date = Math.max(mMinDate.getTimeInMillis(),
+                    Math.min(date, mMaxDate.getTimeInMillis()));
+            setPendingDate(date, false, false);
+        }
+    };
+
     public void addDate(int value, boolean animate, boolean center) {
     	add(Calendar.DATE, value, animate, center);
     }
@@ -684,121 +2204,432 @@ public class CalendarView extends FrameLayout {
     	add(Calendar.YEAR, value, animate, center);
     }
     
+    /**
+     * Moves the selected date. Calls made within one frame, e.g. by key
+     * repeat, add up to one target which is selected and scrolled to in the
+     * next frame, so a running scroll is retargeted once per frame at most.
+     *
+     * @throws IllegalArgumentException If the resulting date is before the
+     *        min date or after the max date.
+     */
     private void add(int field, int value, boolean animate, boolean center) {
-    	mTempDate.setTimeInMillis(mAdapter.mSelectedDate.getTimeInMillis());
-    	mTempDate.add(field, value);
-        goTo(mTempDate, animate, true, center);
-    }
+        mTempDate.setTimeInMillis(getDate());
+        mTempDate.add(field, value);
+        if (mTempDate.before(mMinDate) || mTempDate.after(mMaxDate)) {
+            throw new IllegalArgumentException("Time not between " + mMinDate.getTime()
+                    + " and " + mMaxDate.getTime());
+        }
+        setPendingDate(mTempDate.getTimeInMillis(), animate, center);
+    }
 
     /**
-     * Invalidates all week views.
+     * Sets the date to select and scroll to in the next frame.
      */
-    private void invalidateAllWeekViews() {
-        final int childCount = mListView.getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            View view = mListView.getChildAt(i);
-            view.invalidate();
+    private void setPendingDate(long date, boolean animate, boolean center) {
+        if (mPendingAddDate == null) {
+            mPendingAddDate = (Calendar) mTempDate.clone();
+        }
+        mPendingAddDate.setTimeInMillis(date);
+        mPendingAddAnimate = animate;
+        mPendingAddCenter = center;
+        if (!mAddPending) {
+            mAddPending = true;
+            ViewCompat.postOnAnimation(this, mApplyPendingAddRunnable);
         }
     }
 
     /**
-     * Sets the current locale.
-     *
-     * @param locale The current locale.
+     * Handles the navigation keys before the list sees them.
      */
-    private void setCurrentLocale(Locale locale) {
-        if (locale.equals(mCurrentLocale)) {
-            return;
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (event.getAction() == KeyEvent.ACTION_DOWN && isEnabled()
+                && mDisplayMode != DISPLAY_MODE_YEAR && onNavigationKeyDown(event)) {
+            return true;
         }
-
-        mCurrentLocale = locale;
-
-        mTempDate = getCalendarForLocale(mTempDate, locale);
-        mMinDate = getCalendarForLocale(mMinDate, locale);
-        mMaxDate = getCalendarForLocale(mMaxDate, locale);
+        return super.dispatchKeyEvent(event);
     }
 
     /**
-     * Gets a calendar for locale bootstrapped with the value of a given calendar.
+     * Moves the selected date with the arrow keys by days and weeks and with
+     * the page keys by months. Home goes to today, shift+home to the min date
+     * and end to the max date.
+     * <p>
+     * Steps grow while a key is held, from days to weeks to months. Key
+     * repeats go through the same per-frame target as the add methods, so
+     * each frame selects and scrolls once however fast the keys repeat.
+     * <p>
+     * A key that cannot move the date because it is at the end of the range
+     * is not handled, so focus can move to the next view.
      *
-     * @param oldCalendar The old calendar.
-     * @param locale The locale.
+     * @return True if the key moved the selected date.
      */
-    private Calendar getCalendarForLocale(Calendar oldCalendar, Locale locale) {
-        if (oldCalendar == null) {
-            return Calendar.getInstance(locale);
-        } else {
-            final long currentTimeMillis = oldCalendar.getTimeInMillis();
-            Calendar newCalendar = Calendar.getInstance(locale);
-            newCalendar.setTimeInMillis(currentTimeMillis);
-            return newCalendar;
+    private boolean onNavigationKeyDown(KeyEvent event) {
+        int field;
+        int amount;
+        switch (event.getKeyCode()) {
+            case KeyEvent.KEYCODE_DPAD_LEFT:
+                field = Calendar.DATE;
+                amount = -1;
+                break;
+            case KeyEvent.KEYCODE_DPAD_RIGHT:
+                field = Calendar.DATE;
+                amount = 1;
+                break;
+            case KeyEvent.KEYCODE_DPAD_UP:
+                field = Calendar.WEEK_OF_YEAR;
+                amount = -1;
+                break;
+            case KeyEvent.KEYCODE_DPAD_DOWN:
+                field = Calendar.WEEK_OF_YEAR;
+                amount = 1;
+                break;
+            case KeyEvent.KEYCODE_PAGE_UP:
+                field = Calendar.MONTH;
+                amount = -1;
+                break;
+            case KeyEvent.KEYCODE_PAGE_DOWN:
+                field = Calendar.MONTH;
+                amount = 1;
+                break;
+            case KeyEvent.KEYCODE_MOVE_HOME:
+                return moveToDate(event.isShiftPressed() ? mMinDate.getTimeInMillis()
+                        : System.currentTimeMillis(), true);
+            case KeyEvent.KEYCODE_MOVE_END:
+                return moveToDate(mMaxDate.getTimeInMillis(), true);
+            default:
+                return false;
+        }
+        int repeatCount = event.getRepeatCount();
+        if (repeatCount >= KEY_REPEAT_MONTH_STEPS) {
+            field = Calendar.MONTH;
+        } else if (repeatCount >= KEY_REPEAT_WEEK_STEPS && field == Calendar.DATE) {
+            field = Calendar.WEEK_OF_YEAR;
         }
+        mTempDate.setTimeInMillis(getDate());
+        mTempDate.add(field, amount);
+        return moveToDate(mTempDate.getTimeInMillis(), false);
     }
 
     /**
-     * @return True if the <code>firstDate</code> is the same as the <code>
-     * secondDate</code>.
+     * Selects the given date clamped to the range in the next frame.
+     *
+     * @param center Whether to center the date, which also scrolls back to
+     *            the selected date if it is scrolled out of view.
+     * @return False if the clamped date is the selected date and nothing has
+     *         to scroll.
      */
-    private boolean isSameDate(Calendar firstDate, Calendar secondDate) {
-        return (firstDate.get(Calendar.DAY_OF_YEAR) == secondDate.get(Calendar.DAY_OF_YEAR)
-                && firstDate.get(Calendar.YEAR) == secondDate.get(Calendar.YEAR));
+    private boolean moveToDate(long date, boolean center) {
+        // stop at the ends of the range
+        date = Math.max(mMinDate.getTimeInMillis(), Math.min(date, mMaxDate.getTimeInMillis()));
+        if (mWeekModel.getLocalDay(date) == mWeekModel.getLocalDay(getDate())
+                && (!center || isSelectedWeekShown())) {
+            return false;
+        }
+        setPendingDate(date, true, center);
+        return true;
     }
 
     /**
-     * Creates a new adapter if necessary and sets up its parameters.
+     * @return Whether the row of the selected week is on screen, always true
+     *         in the display modes without a list of weeks.
      */
-    private void setUpAdapter() {
-        if (mAdapter == null) {
-            mAdapter = new WeeksAdapter(getContext());
-            mAdapter.registerDataSetObserver(new DataSetObserver() {
-                @Override
-                public void onChanged() {
-                    if (mOnDateChangeListener != null) {
-                        Calendar selectedDay = mAdapter.getSelectedDay();
-                        mOnDateChangeListener.onSelectedDayChange(CalendarView.this,
-                                selectedDay.get(Calendar.YEAR),
-                                selectedDay.get(Calendar.MONTH),
-                                selectedDay.get(Calendar.DAY_OF_MONTH));
-                    }
-                }
-            });
-            mListView.setAdapter(mAdapter);
+    private boolean isSelectedWeekShown() {
+        if (mDisplayMode != DISPLAY_MODE_WEEKS) {
+            return true;
         }
+        int position = mAdapter.getPositionForWeek(mAdapter.mSelectedWeek);
+        return position >= mListView.getFirstVisiblePosition()
+                && position <= mListView.getLastVisiblePosition();
+    }
 
-        // refresh the view with the new parameters
-        mAdapter.notifyDataSetChanged();
+    private void applyPendingAdd() {
+        if (mAddPending) {
+            // the range may have changed since the target was set
+            clampPendingAdd();
+            mAddPending = false;
+            goTo(mPendingAddDate, mPendingAddAnimate, true, mPendingAddCenter);
+        }
     }
 
     /**
-     * Sets up the strings to be used by the header.
+     * Moves the pending target into the range of dates.
      */
-    private void setUpHeader() {
-        mDayNamesHeader = (ViewGroup)mContentView.findViewById(R.id.day_names);
-        mDayLabels = new String[mDaysPerWeek];
-        for (int i = mFirstDayOfWeek, count = mFirstDayOfWeek + mDaysPerWeek; i < count; i++) {
-            int calendarDay = (i > Calendar.SATURDAY) ? i - Calendar.SATURDAY : i;
-            mDayLabels[i - mFirstDayOfWeek] = DateUtils.getDayOfWeekString(calendarDay,
-                    DateUtils.LENGTH_SHORTEST);
+    private void clampPendingAdd() {
+        if (!mAddPending) {
+            return;
+        }
+        if (mPendingAddDate.before(mMinDate)) {
+            mPendingAddDate.setTimeInMillis(mMinDate.getTimeInMillis());
+        } else if (mPendingAddDate.after(mMaxDate)) {
+            mPendingAddDate.setTimeInMillis(mMaxDate.getTimeInMillis());
         }
+    }
 
-        TextView label = (TextView) mDayNamesHeader.getChildAt(0);
-        if (mShowWeekNumber) {
-            label.setVisibility(View.VISIBLE);
-        } else {
-            label.setVisibility(View.GONE);
+    private void cancelPendingAdd() {
+        if (mAddPending) {
+            mAddPending = false;
+            removeCallbacks(mApplyPendingAddRunnable);
         }
-        for (int i = 1, count = mDayNamesHeader.getChildCount(); i < count; i++) {
-            label = (TextView) mDayNamesHeader.getChildAt(i);
-            if (mWeekDayTextAppearanceResId > -1) {
-                label.setTextAppearance(getContext(), mWeekDayTextAppearanceResId);
+    }
+
+    /**
+     * Sets the color of the outline of today. A transparent color shows no
+     * outline.
+     *
+     * @param color The today color.
+     */
+    public void setTodayColor(int color) {
+        if (mTodayColor != color) {
+            mTodayColor = color;
+            mWeekPainter.setToday(color, mWeekSeperatorLineWidth * 2);
+            invalidateWeek(mWeekModel.getWeekForDay(mToday));
+        }
+    }
+
+    /**
+     * Gets the color of the outline of today.
+     *
+     * @return The today color.
+     */
+    public int getTodayColor() {
+        return mTodayColor;
+    }
+
+    /**
+     * @return The column of today in the given week, or -1 if the week does
+     *         not contain today.
+     */
+    private int getTodayColumn(int week) {
+        int column = mToday - mWeekModel.getWeekStartDay(week);
+        return column >= 0 && column < DAYS_PER_WEEK ? column : -1;
+    }
+
+    /**
+     * Finds today, redraws the rows of the old and the new today if it
+     * changed and schedules one callback for the next local midnight.
+     */
+    private void updateToday() {
+        mMainHandler.removeCallbacks(mUpdateTodayRunnable);
+        long now = System.currentTimeMillis();
+        int today = mWeekModel.getLocalDay(now);
+        if (today != mToday) {
+            int oldWeek = mWeekModel.getWeekForDay(mToday);
+            mToday = today;
+            invalidateWeek(oldWeek);
+            invalidateWeek(mWeekModel.getWeekForDay(today));
+        }
+        mMainHandler.postDelayed(mUpdateTodayRunnable,
+                mWeekModel.getMillisForLocalDay(today + 1) - now);
+    }
+
+    /**
+     * Invalidates the bound rows of the given week, in the list and in the
+     * month pager.
+     */
+    private void invalidateWeek(int week) {
+        for (int i = mListView.getChildCount() - 1; i >= 0; i--) {
+            WeekView weekView = (WeekView) mListView.getChildAt(i);
+            if (weekView.mWeek == week) {
+                weekView.invalidate();
             }
-            if (i < mDaysPerWeek + 1) {
-                label.setText(mDayLabels[i - 1]);
-                label.setVisibility(View.VISIBLE);
-            } else {
-                label.setVisibility(View.GONE);
+        }
+        if (mMonthPager != null) {
+            for (int i = mMonthPager.getChildCount() - 1; i >= 0; i--) {
+                ViewGroup page = (ViewGroup) mMonthPager.getChildAt(i);
+                for (int j = page.getChildCount() - 1; j >= 0; j--) {
+                    WeekView weekView = (WeekView) page.getChildAt(j);
+                    if (weekView.mWeek == week) {
+                        weekView.invalidate();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalidates all week views.
+     */
+    private void invalidateAllWeekViews() {
+        final int childCount = mListView.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            View view = mListView.getChildAt(i);
+            view.invalidate();
+        }
+    }
+
+    /**
+     * Sets the current locale.
+     *
+     * @param locale The current locale.
+     */
+    private void setCurrentLocale(Locale locale) {
+        if (locale.equals(mCurrentLocale)) {
+            return;
+        }
+
+        mCurrentLocale = locale;
+
+        mTempDate = getCalendarForLocale(mTempDate, locale);
+        mMinDate = getCalendarForLocale(mMinDate, locale);
+        mMaxDate = getCalendarForLocale(mMaxDate, locale);
+        if (mPendingAddDate != null) {
+            mPendingAddDate = getCalendarForLocale(mPendingAddDate, locale);
+        }
+
+        if (mWeekModel != null) {
+            updateWeekModel();
+            setUpHeader();
+        }
+    }
+
+    /**
+     * Replaces the week model with the shared one of the current range, first
+     * day of week, locale and time zone.
+     */
+    private void updateWeekModel() {
+        WeekModel weekModel = WeekModel.obtain(mMinDate.getTimeInMillis(),
+                mMaxDate.getTimeInMillis(), mFirstDayOfWeek, mCurrentLocale,
+                mTempDate.getTimeZone(), mWeekNumbering);
+        if (mWeekModel != null && !mWeekModelReleased) {
+            mWeekModel.release();
+        }
+        mWeekModel = weekModel;
+        mWeekModelReleased = false;
+        mMonthSectionIndex = null;
+        // the weeks are counted from another day
+        clearPrefetchedEventTitles();
+    }
+
+    /**
+     * @return The months of the current week model as sections.
+     */
+    private MonthSectionIndex getMonthSectionIndex() {
+        if (mMonthSectionIndex == null) {
+            mMonthSectionIndex = new MonthSectionIndex(mWeekModel);
+        }
+        return mMonthSectionIndex;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mWeekModelReleased) {
+            updateWeekModel();
+        }
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_DATE_CHANGED);
+        getContext().registerReceiver(mTimeChangedReceiver, filter);
+        // the default time zone and the day may have changed while detached
+        followDefaultTimeZone();
+        updateToday();
+        if (mListView.getAdapter() == null) {
+            // the rows were given to the pool on detach
+            mListView.setAdapter(mAdapter);
+            mListView.setSelectionFromTop(mDetachedFirstPosition, mDetachedFirstTop);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mShowLiveContentRunnable);
+        mMainHandler.removeCallbacks(mApplyStoredSnapshotRunnable);
+        mListView.removeCallbacks(mEnsureWindowRunnable);
+        getContext().unregisterReceiver(mTimeChangedReceiver);
+        mMainHandler.removeCallbacks(mUpdateTodayRunnable);
+        // the next frame may never come
+        removeCallbacks(mApplyPendingAddRunnable);
+        applyPendingAdd();
+        if (removeCallbacks(mSaveSnapshotRunnable)) {
+            mSnapshotUpToDate = false;
+        }
+        // keep using the model but let the cache drop it if nobody else does
+        mWeekModel.release();
+        mWeekModelReleased = true;
+
+        if (mWeekViewPool != null) {
+            View firstChild = mListView.getChildAt(0);
+            mDetachedFirstPosition = mListView.getFirstVisiblePosition();
+            mDetachedFirstTop = firstChild != null ? firstChild.getTop() : 0;
+            ArrayList<View> rows = new ArrayList<View>();
+            mListView.reclaimViews(rows);
+            // reclaimViews() copies the scrap rows but leaves them in the
+            // recycler, clearing the adapter clears it so no row is both
+            // pooled and reused by this list
+            mListView.setAdapter(null);
+            for (View row : rows) {
+                mWeekViewPool.release(row);
             }
         }
+    }
+
+    /**
+     * Gets a calendar for locale bootstrapped with the value of a given calendar.
+     *
+     * @param oldCalendar The old calendar.
+     * @param locale The locale.
+     */
+    private Calendar getCalendarForLocale(Calendar oldCalendar, Locale locale) {
+        if (oldCalendar == null) {
+            return Calendar.getInstance(locale);
+        } else {
+            final long currentTimeMillis = oldCalendar.getTimeInMillis();
+            // keep the time zone, which may have been set by setTimeZone()
+            Calendar newCalendar = Calendar.getInstance(oldCalendar.getTimeZone(), locale);
+            newCalendar.setTimeInMillis(currentTimeMillis);
+            return newCalendar;
+        }
+    }
+
+    /**
+     * @return True if the <code>firstDate</code> is the same as the <code>
+     * secondDate</code>.
+     */
+    private boolean isSameDate(Calendar firstDate, Calendar secondDate) {
+        return (firstDate.get(Calendar.DAY_OF_YEAR) == secondDate.get(Calendar.DAY_OF_YEAR)
+                && firstDate.get(Calendar.YEAR) == secondDate.get(Calendar.YEAR));
+    }
+
+    /**
+     * Creates a new adapter if necessary and sets up its parameters.
+     */
+    private void setUpAdapter() {
+        if (mAdapter == null) {
+            mAdapter = new WeeksAdapter(getContext());
+            mListView.setAdapter(mAdapter);
+        }
+
+        // refresh the view with the new parameters
+        mAdapter.notifyDataSetChanged();
+    }
+
+    /**
+     * Notifies the listener about the selected day. This is not done from a
+     * data set observer since the adapter is also refreshed when only its
+     * window of weeks moves.
+     */
+    private void dispatchSelectedDayChange() {
+        if (mOnDateChangeListener != null) {
+            Calendar selectedDay = mAdapter.getSelectedDay();
+            mOnDateChangeListener.onSelectedDayChange(CalendarView.this,
+                    selectedDay.get(Calendar.YEAR),
+                    selectedDay.get(Calendar.MONTH),
+                    selectedDay.get(Calendar.DAY_OF_MONTH));
+        }
+    }
+
+    /**
+     * Sets up the strings to be used by the header.
+     */
+    private void setUpHeader() {
+        if (mDayNamesHeader == null) {
+            mDayNamesHeader = new DayNamesHeader(getContext());
+            mContentView.addView(mDayNamesHeader, new LinearLayout.LayoutParams(
+                    LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+        }
+        // the labels are read from the week model when drawing
         mDayNamesHeader.invalidate();
     }
 
@@ -815,6 +2646,54 @@ public class CalendarView extends FrameLayout {
         mListView.setDivider(null);
         mListView.setItemsCanFocus(true);
         mListView.setVerticalScrollBarEnabled(false);
+        mListView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+                mScrollState = scrollState;
+                if (scrollState != SCROLL_STATE_FLING) {
+                    setReducedDetail(false);
+                }
+                if (scrollState == SCROLL_STATE_IDLE) {
+                    if (mScrubberEnabled) {
+                        // hide the scrubber
+                        mListView.invalidate();
+                    }
+                    // move the window of weeks while nothing is moving
+                    mAdapter.ensureWeekInWindow(
+                            mAdapter.getWeekForPosition(view.getFirstVisiblePosition()));
+                    // the list settled somewhere else
+                    invalidateSnapshot();
+                }
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
+                    int totalItemCount) {
+                if (firstVisibleItem == mSpeedFirstVisibleItem) {
+                    return;
+                }
+                // measure the speed each time a week scrolls out
+                long now = SystemClock.uptimeMillis();
+                long elapsed = Math.max(1, now - mSpeedTime);
+                float weeksPerSecond = Math.abs(firstVisibleItem - mSpeedFirstVisibleItem)
+                        * 1000f / elapsed;
+                mSpeedFirstVisibleItem = firstVisibleItem;
+                mSpeedTime = now;
+                if (mAdapter.isNearWindowEdge(firstVisibleItem)) {
+                    // a fling must not reach the edge of the window and stop,
+                    // the new position is set without stopping it
+                    mListView.removeCallbacks(mEnsureWindowRunnable);
+                    mListView.post(mEnsureWindowRunnable);
+                }
+                if (mScrollState == SCROLL_STATE_FLING) {
+                    if (weeksPerSecond >= mReducedDetailEnterSpeed) {
+                        setReducedDetail(true);
+                    } else if (weeksPerSecond < mReducedDetailExitSpeed) {
+                        setReducedDetail(false);
+                    }
+                }
+            }
+        });
         
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) { // API 11
 	        // Make the scrolling behavior nicer
@@ -848,7 +2727,18 @@ public class CalendarView extends FrameLayout {
             mAdapter.setSelectedDay(date);
         }
         // Get the week we're going to
-        int position = getWeeksSinceMinDate(date);
+        int week = getWeeksSinceMinDate(date);
+        if (mDisplayMode == DISPLAY_MODE_YEAR) {
+            mYearView.scrollToDay(mWeekModel.getLocalDay(date.getTimeInMillis()));
+            return;
+        }
+        if (mDisplayMode == DISPLAY_MODE_MONTH_PAGER) {
+            mMonthPager.setCurrentItem(getMonthSectionIndex().getSectionForDay(
+                    mWeekModel.getLocalDay(date.getTimeInMillis())), animate);
+            return;
+        }
+        mAdapter.ensureWeekInWindow(week);
+        int position = mAdapter.getPositionForWeek(week);
 
         mListView.scrollToPosition(position, animate, center);
     }
@@ -860,13 +2750,38 @@ public class CalendarView extends FrameLayout {
      * @return True if the date was parsed.
      */
     private boolean parseDate(String date, Calendar outDate) {
-        try {
-            outDate.setTime(mDateFormat.parse(date));
-            return true;
-        } catch (ParseException e) {
+        // parsed by hand since creating a SimpleDateFormat is slow
+        int firstSlash = date.indexOf('/');
+        int secondSlash = date.indexOf('/', firstSlash + 1);
+        int month = parseDateField(date, 0, firstSlash);
+        int dayOfMonth = parseDateField(date, firstSlash + 1, secondSlash);
+        int year = parseDateField(date, secondSlash + 1, date.length());
+        if (firstSlash < 0 || secondSlash < 0
+                || month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > 31 || year < 0) {
             Log.w(LOG_TAG, "Date: " + date + " not in format: " + DATE_FORMAT);
             return false;
         }
+        outDate.clear();
+        outDate.set(year, month - 1, dayOfMonth);
+        return true;
+    }
+
+    /**
+     * @return The decimal number in the given range of <code>date</code> or -1.
+     */
+    private static int parseDateField(String date, int start, int end) {
+        if (start < 0 || end > date.length() || start >= end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = date.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
     }
 
     /**
@@ -878,13 +2793,7 @@ public class CalendarView extends FrameLayout {
             throw new IllegalArgumentException("fromDate: " + mMinDate.getTime()
                     + " does not precede toDate: " + date.getTime());
         }
-        long endTimeMillis = date.getTimeInMillis()
-                + date.getTimeZone().getOffset(date.getTimeInMillis());
-        long startTimeMillis = mMinDate.getTimeInMillis()
-                + mMinDate.getTimeZone().getOffset(mMinDate.getTimeInMillis());
-        long dayOffsetMillis = (mMinDate.get(Calendar.DAY_OF_WEEK) - mFirstDayOfWeek)
-                * MILLIS_IN_DAY;
-        return (int) ((endTimeMillis - startTimeMillis + dayOffsetMillis) / MILLIS_IN_WEEK);
+        return mWeekModel.getWeekForDay(mWeekModel.getLocalDay(date.getTimeInMillis()));
     }
     
     private class AdjustScrollRunnable implements Runnable {
@@ -918,6 +2827,80 @@ public class CalendarView extends FrameLayout {
         }
     }
 
+    /**
+     * The header with the week day names. It draws all labels itself instead
+     * of using a view per label.
+     */
+    private class DayNamesHeader extends View {
+
+        private static final int UNSCALED_HORIZONTAL_MARGIN = 2;
+
+        private static final int UNSCALED_BOTTOM_MARGIN = 6;
+
+        private static final int UNSCALED_DIVIDER_HEIGHT = 1;
+
+        private static final int DEFAULT_LABEL_TEXT_SIZE = 14;
+
+        private final Paint mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        private final Drawable mDivider;
+
+        private final int mHorizontalMargin;
+
+        private final int mBottomMargin;
+
+        private final int mDividerHeight;
+
+        public DayNamesHeader(Context context) {
+            super(context);
+            DisplayMetrics displayMetrics = getResources().getDisplayMetrics();
+            mHorizontalMargin = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+                    UNSCALED_HORIZONTAL_MARGIN, displayMetrics);
+            mBottomMargin = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+                    UNSCALED_BOTTOM_MARGIN, displayMetrics);
+            mDividerHeight = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+                    UNSCALED_DIVIDER_HEIGHT, displayMetrics);
+            mDivider = getResources().getDrawable(android.R.drawable.divider_horizontal_dark);
+
+            // read only the text size and color of the text appearance
+            TypedArray appearance;
+            if (mWeekDayTextAppearanceResId > -1) {
+                appearance = context.obtainStyledAttributes(mWeekDayTextAppearanceResId,
+                        new int[] { android.R.attr.textSize, android.R.attr.textColor });
+            } else {
+                appearance = context.obtainStyledAttributes(
+                        new int[] { android.R.attr.textSize, android.R.attr.textColorPrimary });
+            }
+            mLabelPaint.setTextSize(appearance.getDimensionPixelSize(0,
+                    (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP,
+                            DEFAULT_LABEL_TEXT_SIZE, displayMetrics)));
+            mLabelPaint.setColor(appearance.getColor(1, Color.BLACK));
+            appearance.recycle();
+            mLabelPaint.setTextAlign(Align.CENTER);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            int textHeight = (int) Math.ceil(mLabelPaint.descent() - mLabelPaint.ascent());
+            setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec),
+                    textHeight + mBottomMargin + mDividerHeight);
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            int numCells = mShowWeekNumber ? mDaysPerWeek + 1 : mDaysPerWeek;
+            int firstDayCell = mShowWeekNumber ? 1 : 0;
+            int width = getWidth() - 2 * mHorizontalMargin;
+            float y = -mLabelPaint.ascent();
+            for (int i = 0; i < mDaysPerWeek; i++) {
+                float x = mHorizontalMargin + (2 * (firstDayCell + i) + 1) * width / (2f * numCells);
+                canvas.drawText(mWeekModel.getDayLabel(i), x, y, mLabelPaint);
+            }
+            mDivider.setBounds(0, getHeight() - mDividerHeight, getWidth(), getHeight());
+            mDivider.draw(canvas);
+        }
+    }
+
     /**
      * <p>
      * This is a specialized adapter for creating a list of weeks with
@@ -938,20 +2921,142 @@ public class CalendarView extends FrameLayout {
 
         private int mTotalWeekCount;
 
+        // The week shown at list position 0, non zero only in unbounded mode
+        private int mWeekBase;
+
+        // Whether rows bound before a change of the range can be kept, until the next layout
+        private boolean mRowsReusable;
+
+        // The days inside both the old and the new range, see notifyRangeChanged()
+        private int mReusableMinDay;
+        private int mReusableMaxDay;
+
         public WeeksAdapter(Context context) {
-            mGestureDetector = new GestureDetector(context, new CalendarGestureListener());
             init();
         }
 
         /**
-         * Set up the gesture detector and selected time
+         * Set up the selected time. The gesture detector is created on the
+         * first touch.
          */
         private void init() {
             mSelectedWeek = getWeeksSinceMinDate(mSelectedDate);
-            mTotalWeekCount = getWeeksSinceMinDate(mMaxDate);
-            if (mMinDate.get(Calendar.DAY_OF_WEEK) != mFirstDayOfWeek
-                || mMaxDate.get(Calendar.DAY_OF_WEEK) != mFirstDayOfWeek) {
-                mTotalWeekCount++;
+            mTotalWeekCount = mWeekModel.getWeekCount();
+            resetWeekHeights();
+            centerWindowAt(mSelectedWeek);
+        }
+
+        /**
+         * @return The week, counted from the week of the min date, shown at
+         *         the given list position.
+         */
+        public int getWeekForPosition(int position) {
+            return mWeekBase + position;
+        }
+
+        /**
+         * @return The list position of the given week, counted from the week
+         *         of the min date.
+         */
+        public int getPositionForWeek(int week) {
+            return week - mWeekBase;
+        }
+
+        /**
+         * Moves the window of weeks so the given week is in its middle. This
+         * does not refresh the list.
+         */
+        private void centerWindowAt(int week) {
+            if (!mUnbounded) {
+                mWeekBase = 0;
+                return;
+            }
+            mWeekBase = Math.max(0, Math.min(week - VIRTUAL_WEEK_COUNT / 2,
+                    mTotalWeekCount - getCount()));
+        }
+
+        /**
+         * Moves the window of weeks so the given week is at the given
+         * position, which is only possible in unbounded mode unless the week
+         * is already there. This does not refresh the list.
+         *
+         * @return True if the week is at the position.
+         */
+        private boolean placeWeekAt(int week, int position) {
+            if (!mUnbounded) {
+                return getPositionForWeek(week) == position;
+            }
+            int weekBase = week - position;
+            if (position >= getCount() || weekBase < 0 || weekBase > mTotalWeekCount - getCount()) {
+                return false;
+            }
+            mWeekBase = weekBase;
+            return true;
+        }
+
+        /**
+         * Refreshes the list after only the range of dates changed. Until the
+         * next layout, rows handed back for a week they already show with
+         * the same selection, fully inside both the old and the new range,
+         * are moved to the new week number without being bound again.
+         *
+         * @param oldMinDay The min day of the old range.
+         * @param oldMaxDay The max day of the old range.
+         */
+        private void notifyRangeChanged(int oldMinDay, int oldMaxDay) {
+            notifyDataSetChanged();
+            mReusableMinDay = Math.max(oldMinDay, mWeekModel.getMinDay());
+            mReusableMaxDay = Math.min(oldMaxDay, mWeekModel.getMaxDay());
+            mRowsReusable = true;
+        }
+
+        @Override
+        public void notifyDataSetChanged() {
+            // the rows must be bound again for any other change
+            mRowsReusable = false;
+            super.notifyDataSetChanged();
+        }
+
+        /**
+         * @return True if the given row shows the given week as it would be
+         *         bound after a change of the range only.
+         */
+        private boolean isReusableRow(WeekView weekView, int week, int selectedWeekDay) {
+            int startDay = mWeekModel.getWeekStartDay(week);
+            return mRowsReusable && weekView.mStartDay == startDay
+                    && weekView.mSelectedDay == selectedWeekDay
+                    && startDay >= mReusableMinDay
+                    && startDay + DAYS_PER_WEEK - 1 <= mReusableMaxDay;
+        }
+
+        /**
+         * @return True if the given position is within the margin of the edge
+         *         of the window of weeks in unbounded mode.
+         */
+        private boolean isNearWindowEdge(int position) {
+            return mUnbounded
+                    && (position < VIRTUAL_WEEK_MARGIN || position >= getCount() - VIRTUAL_WEEK_MARGIN);
+        }
+
+        /**
+         * Moves the window of weeks if the given week is close to its edge and
+         * keeps the shown weeks at the same pixel offset.
+         */
+        private void ensureWeekInWindow(int week) {
+            if (!isNearWindowEdge(getPositionForWeek(week))) {
+                return;
+            }
+            int oldWeekBase = mWeekBase;
+            centerWindowAt(week);
+            int delta = mWeekBase - oldWeekBase;
+            if (delta == 0) {
+                return;
+            }
+            notifyDataSetChanged();
+            View firstChild = mListView.getChildAt(0);
+            int firstPosition = mListView.getFirstVisiblePosition() - delta;
+            if (firstChild != null && firstPosition >= 0 && firstPosition < getCount()) {
+                mListView.setSelectionFromTop(firstPosition, firstChild.getTop());
             }
         }
 
@@ -965,10 +3070,31 @@ public class CalendarView extends FrameLayout {
                     && selectedDay.get(Calendar.YEAR) == mSelectedDate.get(Calendar.YEAR)) {
                 return;
             }
+            int oldSelectedWeek = mSelectedWeek;
             mSelectedDate.setTimeInMillis(selectedDay.getTimeInMillis());
             mSelectedWeek = getWeeksSinceMinDate(mSelectedDate);
             mFocusedMonth = mSelectedDate.get(Calendar.MONTH);
-            notifyDataSetChanged();
+            // only the rows of the old and the new selected week change
+            updateSelectedRows(oldSelectedWeek);
+            refreshMonthPages();
+            invalidateSnapshot();
+            dispatchSelectedDayChange();
+        }
+
+        /**
+         * Moves the highlight of the bound rows from the given week to the
+         * selected week without binding the rows again. Rows bound later
+         * get the selection from {@link #getView(int, View, ViewGroup)}.
+         */
+        private void updateSelectedRows(int oldSelectedWeek) {
+            for (int i = mListView.getChildCount() - 1; i >= 0; i--) {
+                WeekView weekView = (WeekView) mListView.getChildAt(i);
+                if (weekView.mWeek == mSelectedWeek) {
+                    weekView.setSelectedDay(mSelectedDate.get(Calendar.DAY_OF_WEEK));
+                } else if (weekView.mWeek == oldSelectedWeek) {
+                    weekView.setSelectedDay(-1);
+                }
+            }
         }
 
         /**
@@ -980,7 +3106,7 @@ public class CalendarView extends FrameLayout {
 
         @Override
         public int getCount() {
-            return mTotalWeekCount;
+            return mUnbounded ? Math.min(mTotalWeekCount, VIRTUAL_WEEK_COUNT) : mTotalWeekCount;
         }
 
         @Override
@@ -999,24 +3125,47 @@ public class CalendarView extends FrameLayout {
             if (convertView != null) {
                 weekView = (WeekView) convertView;
             } else {
-                weekView = new WeekView(getContext());
-                android.widget.AbsListView.LayoutParams params =
-                    new android.widget.AbsListView.LayoutParams(LayoutParams.WRAP_CONTENT,
-                            LayoutParams.WRAP_CONTENT);
-                weekView.setLayoutParams(params);
-                weekView.setClickable(true);
+                if (mWeekViewPool != null) {
+                    // a row recycled by another calendar
+                    weekView = (WeekView) mWeekViewPool.acquire(getContext());
+                }
+                if (weekView == null) {
+                    weekView = new WeekView(getContext());
+                    android.widget.AbsListView.LayoutParams params =
+                        new android.widget.AbsListView.LayoutParams(LayoutParams.WRAP_CONTENT,
+                                LayoutParams.WRAP_CONTENT);
+                    weekView.setLayoutParams(params);
+                    weekView.setClickable(true);
+                }
+                weekView.setCalendar(CalendarView.this);
                 weekView.setOnTouchListener(this);
             }
 
-            int selectedWeekDay = (mSelectedWeek == position) ? mSelectedDate.get(
+            int week = getWeekForPosition(position);
+            int selectedWeekDay = (mSelectedWeek == week) ? mSelectedDate.get(
                     Calendar.DAY_OF_WEEK) : -1;
-            weekView.init(position, selectedWeekDay, mFocusedMonth);
+            if (convertView != null && isReusableRow(weekView, week, selectedWeekDay)) {
+                // only the number of the week changed with the range
+                weekView.setWeek(week);
+            } else {
+                weekView.init(week, selectedWeekDay, mFocusedMonth);
+            }
+
+            if (mEventTitleProvider != null) {
+                // measure the titles a screen ahead in the scroll direction
+                prefetchEventTitles(week >= mLastBoundWeek ? week + mShownWeekCount
+                        : week - mShownWeekCount);
+                mLastBoundWeek = week;
+            }
 
             return weekView;
         }
 
         @Override
         public boolean onTouch(View v, MotionEvent event) {
+            if (mGestureDetector == null) {
+                mGestureDetector = new GestureDetector(getContext(), new CalendarGestureListener());
+            }
             if (mListView.isEnabled() && mGestureDetector.onTouchEvent(event)) {
                 WeekView weekView = (WeekView) v;
                 // if we cannot find a day for the given location we are done
@@ -1063,15 +3212,12 @@ public class CalendarView extends FrameLayout {
      * ListView. See {@link WeeksAdapter} for usage.
      * </p>
      */
-    private class WeekView extends View {
+    private static class WeekView extends View {
 
         private final Paint mDrawPaint = new Paint();
 
-        // Cache the number strings so we don't have to recompute them each time
-        private String[] mDayNumbers;
-
-        // The first day displayed by this item
-        private Calendar mFirstDay;
+        // The local day of the first day displayed by this item
+        private int mStartDay;
 
         // The month of the first day in this week
         private int mMonthOfFirstWeekDay = -1;
@@ -1085,7 +3231,6 @@ public class CalendarView extends FrameLayout {
         private int mMaxWeekOfFirstWeekDay = -1;
         private int mWeekOfLastWeekDay = -1;
         private int mMaxWeekOfLastWeekDay = -1;
-        private int mDateOfLastWeekDay = -1; 
 
         // The position of this week, equivalent to weeks since the week of Jan
         // 1st, 1900
@@ -1097,6 +3242,12 @@ public class CalendarView extends FrameLayout {
         // The height this view should draw at in pixels, set by height param
         private int mHeight;
 
+        // The height of a week without content, the dates are centered in it
+        private int mBaseHeight;
+
+        // The largest number of event titles of a day in this week
+        private int mEventTitleLines;
+
         // If this view contains the selected day
         private boolean mHasSelectedDay = false;
 
@@ -1106,11 +3257,28 @@ public class CalendarView extends FrameLayout {
         // The number of days + a spot for week number if it is displayed
         private int mNumCells;
 
-        // The left edge of the selected day
-        private int mSelectedLeft = -1;
+        // The column of the selected day [0-6] or -1 if no day is selected
+        private int mSelectedColumn = -1;
 
-        // The right edge of the selected day
-        private int mSelectedRight = -1;
+        // The bounds of the whole row and of the dates
+        private final Rect mBounds = new Rect();
+        private final Rect mDateBounds = new Rect();
+
+        // The per-day values of this week if the calendar has a day data store
+        private final int[] mDayValues = new int[DAYS_PER_WEEK];
+
+        // The heatmap color of each day of this week if the calendar is a heatmap
+        private final int[] mHeatmapCellColors = new int[DAYS_PER_WEEK];
+
+        // The day of month of each day of this week in the secondary chronology, 0 if none
+        private final int[] mSecondaryDaysOfMonth = new int[DAYS_PER_WEEK];
+
+        // The event titles of each day of this week, MAX_EVENT_TITLES_PER_DAY per day
+        private final String[] mEventTitles = new String[DAYS_PER_WEEK * MAX_EVENT_TITLES_PER_DAY];
+
+        // The calendar this view is drawn for, changes when the view moves
+        // to another calendar through a shared pool
+        private CalendarView mCalendar;
 
         public WeekView(Context context) {
             super(context);
@@ -1120,6 +3288,13 @@ public class CalendarView extends FrameLayout {
 			
         }
 
+        /**
+         * Attaches this view to the calendar it is drawn for.
+         */
+        public void setCalendar(CalendarView calendar) {
+            mCalendar = calendar;
+        }
+
         /**
          * Initializes this week view.
          *
@@ -1134,60 +3309,60 @@ public class CalendarView extends FrameLayout {
         public void init(int weekNumber, int selectedWeekDay, int focusedMonth) {
             mSelectedDay = selectedWeekDay;
             mHasSelectedDay = mSelectedDay != -1;
-            mNumCells = mShowWeekNumber ? mDaysPerWeek + 1 : mDaysPerWeek;
+            mNumCells = mCalendar.mShowWeekNumber ? mCalendar.mDaysPerWeek + 1 : mCalendar.mDaysPerWeek;
             mWeek = weekNumber;
-            mTempDate.setTimeInMillis(mMinDate.getTimeInMillis());
+            WeekModel model = mCalendar.mWeekModel;
+            mStartDay = model.getWeekStartDay(mWeek);
+            int lastDay = mStartDay + DAYS_PER_WEEK - 1;
 
-            mTempDate.add(Calendar.WEEK_OF_YEAR, mWeek);
-            mTempDate.setFirstDayOfWeek(mFirstDayOfWeek);
-
-            // Allocate space for caching the day numbers and focus values
-            mDayNumbers = new String[mNumCells];
-
-            // If we're showing the week number calculate it based on Monday
-            int i = 0;
-            if (mShowWeekNumber) {
-                mDayNumbers[0] = Integer.toString(mTempDate.get(Calendar.WEEK_OF_YEAR));
-                i++;
+            if (mCalendar.mDayDataStore != null) {
+                mCalendar.mDayDataStore.getValues(mStartDay, mCalendar.mDayDataField, mDayValues);
+            }
+            if (mCalendar.mSecondaryChronology != null) {
+                initSecondaryDates(mCalendar.mSecondaryChronology, mStartDay);
+            }
+            if (mCalendar.mHeatmapIntensities != null) {
+                byte[] intensities = mCalendar.mHeatmapIntensities;
+                int index = mStartDay - mCalendar.mHeatmapFirstDay;
+                for (int day = 0; day < DAYS_PER_WEEK; day++, index++) {
+                    int intensity = index >= 0 && index < intensities.length
+                            ? intensities[index] & 0xff : 0;
+                    mHeatmapCellColors[day] = mCalendar.mHeatmapColors[intensity];
+                }
             }
 
-            // Now adjust our starting day based on the start day of the week
-            int diff = mFirstDayOfWeek - mTempDate.get(Calendar.DAY_OF_WEEK);
-            mTempDate.add(Calendar.DAY_OF_MONTH, diff);
+            int firstMonthIndex = WeekModel.getMonthIndex(mStartDay);
+            int lastMonthIndex = WeekModel.getMonthIndex(lastDay);
+            mMonthOfFirstWeekDay = WeekModel.floorMod(firstMonthIndex, 12) + 1;
+            mMonthOfLastWeekDay = WeekModel.floorMod(lastMonthIndex, 12) + 1;
 
-            mFirstDay = (Calendar) mTempDate.clone();
-            mMonthOfFirstWeekDay = mTempDate.get(Calendar.MONTH) + 1;
-            
 	        // easetheworld : draw year, month background
-            mYearOfFirstWeekDay = mTempDate.get(Calendar.YEAR);
-            mWeekOfFirstWeekDay = mTempDate.get(Calendar.WEEK_OF_MONTH);
-            mMaxWeekOfFirstWeekDay = mTempDate.getActualMaximum(Calendar.WEEK_OF_MONTH);
-
-            for (; i < mNumCells; i++) {
-                // do not draw dates outside the valid range to avoid user confusion
-                if (mTempDate.before(mMinDate) || mTempDate.after(mMaxDate)) {
-                    mDayNumbers[i] = "";
-                } else {
-                    mDayNumbers[i] = Integer.toString(mTempDate.get(Calendar.DAY_OF_MONTH));
-                }
-		        // easetheworld : draw year, month background
-                if (i == mNumCells - 1) {
-		            mWeekOfLastWeekDay = mTempDate.get(Calendar.WEEK_OF_MONTH);
-		            mDateOfLastWeekDay = mTempDate.get(Calendar.DATE);
-		            mMaxWeekOfLastWeekDay = mTempDate.getActualMaximum(Calendar.WEEK_OF_MONTH);
-                }
-                mTempDate.add(Calendar.DAY_OF_MONTH, 1);
-            }
-            // We do one extra add at the end of the loop, if that pushed us to
-            // new month undo it
-            if (mTempDate.get(Calendar.DAY_OF_MONTH) == 1) {
-                mTempDate.add(Calendar.DAY_OF_MONTH, -1);
+            mYearOfFirstWeekDay = WeekModel.floorDiv(firstMonthIndex, 12);
+            mWeekOfFirstWeekDay = model.getWeekOfMonth(mStartDay);
+            mMaxWeekOfFirstWeekDay = model.getLastWeekOfMonth(mStartDay);
+            mWeekOfLastWeekDay = model.getWeekOfMonth(lastDay);
+            mMaxWeekOfLastWeekDay = model.getLastWeekOfMonth(lastDay);
+
+            if (mCalendar.mEventTitleProvider != null) {
+                mEventTitleLines = mCalendar.getEventTitles(mWeek, mEventTitles);
             }
-            mMonthOfLastWeekDay = mTempDate.get(Calendar.MONTH) + 1;
 
             updateSelectionPositions();
         }
 
+        /**
+         * Moves this view to another number of the week it shows, after the
+         * week model changed only its range.
+         */
+        public void setWeek(int weekNumber) {
+            mWeek = weekNumber;
+            RowHeightIndex index = mCalendar.mRowHeightIndex;
+            if (index != null && mHeight > 0) {
+                // a recycled row is not measured again
+                index.setHeight(mWeek, mHeight);
+            }
+        }
+
         /**
          * Initialize the paint instances.
          */
@@ -1210,62 +3385,101 @@ public class CalendarView extends FrameLayout {
          * @return True if a day was found for the given location.
          */
         public boolean getDayFromLocation(float x, Calendar outCalendar) {
-            int dayStart = mShowWeekNumber ? mWidth / mNumCells : 0;
+            int dayStart = mCalendar.mShowWeekNumber ? mWidth / mNumCells : 0;
             if (x < dayStart || x > mWidth) {
                 outCalendar.clear();
                 return false;
             }
             // Selection is (x - start) / (pixels/day) == (x -s) * day / pixels
-            int dayPosition = (int) ((x - dayStart) * mDaysPerWeek
+            int dayPosition = (int) ((x - dayStart) * mCalendar.mDaysPerWeek
                     / (mWidth - dayStart));
-            outCalendar.setTimeInMillis(mFirstDay.getTimeInMillis());
-            outCalendar.add(Calendar.DAY_OF_MONTH, dayPosition);
+            outCalendar.setTimeInMillis(
+                    mCalendar.mWeekModel.getMillisForLocalDay(mStartDay + dayPosition));
             return true;
         }
 
         @Override
         protected void onDraw(Canvas canvas) {
-        	drawMonthBackground(canvas); // different background color for even month and odd month
+            WeekPainter painter = mCalendar.mWeekPainter;
+            WeekModel model = mCalendar.mWeekModel;
+            mBounds.set(0, 0, mWidth, mHeight);
+            // the dates stay centered in the height of a week without content
+            mDateBounds.set(0, 0, mWidth, mBaseHeight);
+        	if (mCalendar.mHeatmapIntensities != null) {
+        		drawHeatmapBackground(canvas);
+        	} else {
+        		painter.drawMonthTint(canvas, model, mWeek, mBounds); // different background color for even month and odd month
+        	}
+        	if (mCalendar.mReducedDetail) {
+        		// nobody reads the decorations while flinging
+        		mCalendar.mReducedDrawCount++;
+        		painter.drawDates(canvas, model, mWeek, mDateBounds, false);
+        		return;
+        	}
+        	mCalendar.mFullDrawCount++;
         	drawMonth(canvas); // month number in background
-        	drawSelectedDateBackground(canvas);
-        	drawWeekNumbersAndDates(canvas);
-        	drawWeekSeparators(canvas);
+        	painter.drawSelection(canvas, mBounds, mSelectedColumn);
+        	painter.drawToday(canvas, mBounds, mCalendar.getTodayColumn(mWeek));
+        	painter.drawDates(canvas, model, mWeek, mDateBounds, true);
+        	if (mCalendar.mSecondaryChronology != null) {
+        		painter.drawSecondaryDates(canvas, model, mWeek, mDateBounds, mSecondaryDaysOfMonth,
+        				mCalendar.mSecondaryDateColor);
+        	}
+        	drawEventTitles(canvas);
+        	drawDayDataIndicators(canvas);
+        	painter.drawSeparator(canvas, mBounds);
         }
         
-        private int mOddMonthColor = 0x80ffeeee;
-        private int mEvenMonthColor = 0x80eeeeff;
-        
-        private void drawMonthBackground(Canvas canvas) {
-        	int left = (mShowWeekNumber ? mWidth / mNumCells : 0);
-    		int monthOfLastWeekDayStart;
-    		if (mDateOfLastWeekDay < DAYS_PER_WEEK) {
-	        	// month of first weekday
-    			monthOfLastWeekDayStart = left + (DAYS_PER_WEEK - mDateOfLastWeekDay) * mWidth / mNumCells;
-				mDrawPaint.setColor((mMonthOfFirstWeekDay & 1) == 1 ? mOddMonthColor : mEvenMonthColor);
-	    		canvas.drawRect(left, mWeekSeperatorLineWidth, monthOfLastWeekDayStart, mHeight, mDrawPaint);
-	    		// month separator
-//	            mDrawPaint.setColor(mWeekSeparatorLineColor);
-//	            mDrawPaint.setStrokeWidth(mWeekSeperatorLineWidth);
-//	        	canvas.drawLine(monthOfLastWeekDayStart, mWeekSeperatorLineWidth, monthOfLastWeekDayStart, mHeight, mDrawPaint);
-    		} else
-	    		monthOfLastWeekDayStart = left;
-        	// month of last weekday
-			mDrawPaint.setColor((mMonthOfLastWeekDay & 1) == 1 ? mOddMonthColor : mEvenMonthColor);
-    		canvas.drawRect(monthOfLastWeekDayStart, mWeekSeperatorLineWidth, mWidth, mHeight, mDrawPaint);
+        /**
+         * Finds the day of month of each day of this week in the secondary
+         * chronology. Only the month of the first day is searched, the other
+         * days are compared with the start of the next month.
+         */
+        private void initSecondaryDates(Chronology chronology, int startDay) {
+            int month = -1;
+            int monthStart = 0;
+            int nextMonthStart = 0;
+            for (int i = 0; i < DAYS_PER_WEEK; i++) {
+                int day = startDay + i;
+                if (day < chronology.getMinDay() || day > chronology.getMaxDay()) {
+                    mSecondaryDaysOfMonth[i] = 0;
+                    continue;
+                }
+                if (month < 0) {
+                    month = chronology.getMonth(day);
+                    monthStart = chronology.getFirstDayOfMonth(month);
+                    nextMonthStart = chronology.getFirstDayOfMonth(month + 1);
+                } else if (day >= nextMonthStart) {
+                    month++;
+                    monthStart = nextMonthStart;
+                    nextMonthStart = chronology.getFirstDayOfMonth(month + 1);
+                }
+                mSecondaryDaysOfMonth[i] = day - monthStart + 1;
+            }
         }
-        
+
+        /**
+         * Fills each day with its heatmap color. Adjacent days with the same
+         * color are filled with one rectangle.
+         *
+         * @param canvas The canvas to draw on.
+         */
+        private void drawHeatmapBackground(Canvas canvas) {
+            mCalendar.mWeekPainter.drawDayColors(canvas, mBounds, mHeatmapCellColors);
+        }
+
         // easetheworld : draw year, month background
         private static final int YEAR_MONTH_BACKGROUND_SPAN_ROW = 4;
         
         private void drawMonth(Canvas canvas) {
         	// month of first day
-        	drawMultirowBackgroundText(canvas, Integer.toString(mMonthOfFirstWeekDay), mMonthPaint, mMaxWeekOfFirstWeekDay, YEAR_MONTH_BACKGROUND_SPAN_ROW, mWeekOfFirstWeekDay-1, getWidth() / 2);
+        	drawMultirowBackgroundText(canvas, Integer.toString(mMonthOfFirstWeekDay), mCalendar.mMonthPaint, mMaxWeekOfFirstWeekDay, YEAR_MONTH_BACKGROUND_SPAN_ROW, mWeekOfFirstWeekDay-1, getWidth() / 2);
         	
         	if (mMonthOfLastWeekDay == mMonthOfFirstWeekDay)
         		return;
         	
         	// month of last day
-        	drawMultirowBackgroundText(canvas, Integer.toString(mMonthOfLastWeekDay), mMonthPaint, mMaxWeekOfLastWeekDay, YEAR_MONTH_BACKGROUND_SPAN_ROW, mWeekOfLastWeekDay-1, getWidth() / 2);
+        	drawMultirowBackgroundText(canvas, Integer.toString(mMonthOfLastWeekDay), mCalendar.mMonthPaint, mMaxWeekOfLastWeekDay, YEAR_MONTH_BACKGROUND_SPAN_ROW, mWeekOfLastWeekDay-1, getWidth() / 2);
         }
 		
         /**
@@ -1281,69 +3495,51 @@ public class CalendarView extends FrameLayout {
         	float y = (spanRows - drawRows) * getHeight() / 2 + (drawRows - currentRow) * getHeight();
         	paint.setTextSize(drawRows * getHeight());
 			canvas.drawText(text, x, y - paint.descent() / 2, paint);
-        }
-
-        /**
-         * Draws the week and month day numbers for this week.
-         *
-         * @param canvas The canvas to draw on
-         */
-        private void drawWeekNumbersAndDates(Canvas canvas) {
-            mDrawPaint.setTextSize(mDateTextSize);
-            
-            float textHeight = mDrawPaint.getTextSize();
-            int y = (int) ((mHeight + textHeight) / 2) - mWeekSeperatorLineWidth;
-            int nDays = mNumCells;
-
-            int i = 0;
-            int divisor = 2 * nDays;
-            if (mShowWeekNumber) {
-                mDrawPaint.setColor(mWeekNumberColor);
-                int x = mWidth / divisor;
-                canvas.drawText(mDayNumbers[0], x, y, mDrawPaint);
-                i++;
-            }
-            int i0 = mFirstDayOfWeek - i;
-            Paint dayPaint;
-            for (; i < nDays; i++) {
-            	// easetheworld : Saturday, Sunday highlight
-            	int ii = i + i0;
-            	if (ii > Calendar.SATURDAY)
-            		ii -= DAYS_PER_WEEK;
-        		if (ii == Calendar.SATURDAY) // Saturday
-        			dayPaint = mSaturdayPaint;
-        		else if (ii == Calendar.SUNDAY) // Sunday
-        			dayPaint = mSundayPaint;
-        		else
-        			dayPaint = mWeekdayPaint;
-                int x = (2 * i + 1) * mWidth / divisor;
-                canvas.drawText(mDayNumbers[i], x, y, dayPaint);
-            }
         }
 
         /**
-         * Draws a horizontal line for separating the weeks.
+         * Draws the event titles under the dates, as many as fit into the row.
          *
          * @param canvas The canvas to draw on.
          */
-        private void drawWeekSeparators(Canvas canvas) {
-            mDrawPaint.setColor(mWeekSeparatorLineColor);
-            mDrawPaint.setStrokeWidth(mWeekSeperatorLineWidth);
-            float x = mShowWeekNumber ? mWidth / mNumCells : 0;
-            canvas.drawLine(x, 0, mWidth, 0, mDrawPaint);
+        private void drawEventTitles(Canvas canvas) {
+            if (mCalendar.mEventTitleProvider == null) {
+                return;
+            }
+            TextPaint paint = mCalendar.mEventTitlePaint;
+            int width = mCalendar.getEventTitleWidth(mWidth);
+            float lineHeight = paint.getFontSpacing();
+            float firstBaseline = (mBaseHeight + mCalendar.mDateTextSize) / 2 + lineHeight;
+            int offset = mCalendar.mShowWeekNumber ? 1 : 0;
+            for (int i = 0; i < DAYS_PER_WEEK; i++) {
+                float x = (i + offset) * mWidth / mNumCells + mCalendar.mEventTitlePadding;
+                float y = firstBaseline;
+                for (int j = 0; j < MAX_EVENT_TITLES_PER_DAY && y <= mHeight; j++) {
+                    String title = mEventTitles[i * MAX_EVENT_TITLES_PER_DAY + j];
+                    if (title == null) {
+                        break;
+                    }
+                    canvas.drawText(mCalendar.mEventTextCache.getEllipsized(title, width, paint),
+                            x, y, paint);
+                    y += lineHeight;
+                }
+            }
         }
 
+        private int mDayDataIndicatorColor = 0xff3399cc;
+
         /**
-         * Draws the selected date bars if this week has a selected day.
+         * Draws a dot under the dates whose day data value is not 0.
          *
-         * @param canvas The canvas to draw on
+         * @param canvas The canvas to draw on.
          */
-        private void drawSelectedDateBackground(Canvas canvas) {
-            if (!mHasSelectedDay) {
+        private void drawDayDataIndicators(Canvas canvas) {
+            if (mCalendar.mDayDataStore == null) {
                 return;
             }
-            mDrawPaint.setColor(mSelectedMonthDateColor);
-            canvas.drawRect(mSelectedLeft, mWeekSeperatorLineWidth, mSelectedRight, mHeight, mDrawPaint);
+            mCalendar.mWeekPainter.drawDayIndicators(canvas, mCalendar.mWeekModel, mWeek,
+                    mDateBounds, mDayValues, mDayDataIndicatorColor,
+                    mCalendar.mWeekSeperatorLineWidth * 2);
         }
 
         @Override
@@ -1353,30 +3549,513 @@ public class CalendarView extends FrameLayout {
         }
 
         /**
-         * This calculates the positions for the selected day lines.
+         * Moves the highlight within the bound week.
+         *
+         * @param selectedWeekDay The selected day of the week, e.g.
+         *            {@link Calendar#MONDAY}, -1 if no selected day.
+         */
+        public void setSelectedDay(int selectedWeekDay) {
+            mSelectedDay = selectedWeekDay;
+            mHasSelectedDay = mSelectedDay != -1;
+            updateSelectionPositions();
+            invalidate();
+        }
+
+        /**
+         * This calculates the column of the selected day.
          */
         private void updateSelectionPositions() {
             if (mHasSelectedDay) {
-                int selectedPosition = mSelectedDay - mFirstDayOfWeek;
-                if (selectedPosition < 0) {
-                    selectedPosition += 7;
-                }
-                if (mShowWeekNumber) {
-                    selectedPosition++;
+                mSelectedColumn = mSelectedDay - mCalendar.mFirstDayOfWeek;
+                if (mSelectedColumn < 0) {
+                    mSelectedColumn += 7;
                 }
-                mSelectedLeft = selectedPosition * mWidth / mNumCells;
-                mSelectedRight = (selectedPosition + 1) * mWidth / mNumCells;
+            } else {
+                mSelectedColumn = -1;
             }
         }
 
         @Override
         protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-            mHeight = (mListView.getHeight() - mListView.getPaddingTop() - mListView
-                    .getPaddingBottom()) / mShownWeekCount;
+            if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY) {
+                // a row of a month page
+                mBaseHeight = MeasureSpec.getSize(heightMeasureSpec);
+                mHeight = mBaseHeight;
+                setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), mHeight);
+                return;
+            }
+            mBaseHeight = mCalendar.getUniformWeekHeight();
+            mHeight = mBaseHeight;
+            RowHeightIndex index = mCalendar.mRowHeightIndex;
+            if (index != null) {
+                if (index.getDefaultHeight() != mBaseHeight) {
+                    // the list was resized, measured heights are stale
+                    index.reset(index.getCount(), mBaseHeight);
+                }
+                if (mCalendar.mEventTitleProvider != null) {
+                    int contentHeight = (mBaseHeight + mCalendar.mDateTextSize) / 2
+                            + (int) Math.ceil((mEventTitleLines + 0.5f)
+                                    * mCalendar.mEventTitlePaint.getFontSpacing());
+                    mHeight = Math.max(mBaseHeight, contentHeight);
+                }
+                index.setHeight(mWeek, mHeight);
+            }
             setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), mHeight);
         }
     }
     
+    /**
+     * The pages of the month pager, one month per page.
+     */
+    private class MonthPagerAdapter extends PagerAdapter {
+
+        // pages removed from the pager, bound again for the next month
+        private final ArrayList<MonthPage> mRecycledPages = new ArrayList<MonthPage>();
+
+        @Override
+        public int getCount() {
+            return getMonthSectionIndex().getSectionCount();
+        }
+
+        @Override
+        public Object instantiateItem(ViewGroup container, int position) {
+            MonthPage page = mRecycledPages.isEmpty() ? new MonthPage(getContext())
+                    : mRecycledPages.remove(mRecycledPages.size() - 1);
+            page.bind(position);
+            container.addView(page);
+            page.setLayerEnabled(mMonthPageLayersEnabled);
+            return page;
+        }
+
+        @Override
+        public void destroyItem(ViewGroup container, int position, Object object) {
+            MonthPage page = (MonthPage) object;
+            container.removeView(page);
+            page.setLayerEnabled(false);
+            mRecycledPages.add(page);
+        }
+
+        @Override
+        public boolean isViewFromObject(View view, Object object) {
+            return view == object;
+        }
+
+        @Override
+        public int getItemPosition(Object object) {
+            // pages are bound again in place, see refreshMonthPages()
+            return POSITION_UNCHANGED;
+        }
+    }
+
+    /**
+     * A month of the month pager, drawn with the same week rows as the list.
+     */
+    private class MonthPage extends LinearLayout {
+
+        private int mSection = -1;
+
+        public MonthPage(Context context) {
+            super(context);
+            setOrientation(VERTICAL);
+            for (int i = 0; i < MONTH_PAGE_WEEK_COUNT; i++) {
+                WeekView weekView = new WeekView(context);
+                weekView.setCalendar(CalendarView.this);
+                weekView.setOnTouchListener(mAdapter);
+                weekView.setClickable(true);
+                addView(weekView, new LinearLayout.LayoutParams(LayoutParams.MATCH_PARENT, 0, 1));
+            }
+        }
+
+        /**
+         * Shows the weeks of the given month.
+         */
+        public void bind(int section) {
+            mSection = section;
+            MonthSectionIndex index = getMonthSectionIndex();
+            int firstWeek = index.getWeekForSection(section);
+            int month = index.getMonth(section);
+            for (int i = 0; i < MONTH_PAGE_WEEK_COUNT; i++) {
+                int week = firstWeek + i;
+                int selectedWeekDay = (mAdapter.mSelectedWeek == week)
+                        ? mAdapter.mSelectedDate.get(Calendar.DAY_OF_WEEK) : -1;
+                ((WeekView) getChildAt(i)).init(week, selectedWeekDay, month);
+            }
+            invalidateWeeks();
+        }
+
+        /**
+         * Shows the current selection and content of the same month.
+         */
+        public void rebind() {
+            if (mSection >= 0) {
+                bind(mSection);
+            }
+        }
+
+        private void invalidateWeeks() {
+            for (int i = 0; i < MONTH_PAGE_WEEK_COUNT; i++) {
+                getChildAt(i).invalidate();
+            }
+        }
+
+        /**
+         * Keeps this page in a layer or the drawing cache while the pager
+         * moves, so showing it during a swipe only copies pixels.
+         *
+         * @param enabled False to draw the page directly again.
+         */
+        @TargetApi(11)
+        public void setLayerEnabled(boolean enabled) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && isHardwareAccelerated()) {
+                int layerType = enabled ? LAYER_TYPE_HARDWARE : LAYER_TYPE_NONE;
+                if (getLayerType() != layerType) {
+                    setLayerType(layerType, null);
+                }
+                if (enabled && getWidth() > 0 && getHeight() > 0) {
+                    buildLayer();
+                }
+            } else {
+                setDrawingCacheEnabled(enabled);
+                if (enabled && getWidth() > 0 && getHeight() > 0) {
+                    buildDrawingCache();
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the bound month pages into layers when the pager starts to
+     * scroll and out of them once it is idle, so the layers do not hold
+     * memory while nothing moves.
+     */
+    private void setMonthPageLayersEnabled(boolean enabled) {
+        if (mMonthPageLayersEnabled == enabled) {
+            return;
+        }
+        mMonthPageLayersEnabled = enabled;
+        for (int i = mMonthPager.getChildCount() - 1; i >= 0; i--) {
+            ((MonthPage) mMonthPager.getChildAt(i)).setLayerEnabled(enabled);
+        }
+    }
+
+    /**
+     * Binds the bound month pages again after the selection or the content
+     * of the weeks changed.
+     */
+    private void refreshMonthPages() {
+        if (mMonthPager == null || mMonthPager.getVisibility() != VISIBLE) {
+            return;
+        }
+        for (int i = mMonthPager.getChildCount() - 1; i >= 0; i--) {
+            ((MonthPage) mMonthPager.getChildAt(i)).rebind();
+        }
+    }
+
+    /**
+     * The twelve months of each year in a grid, scrolled vertically by years.
+     * Every month is drawn once into a bitmap with a {@link WeekPainter} and
+     * the bitmaps of recently shown months are kept, so scrolling over years
+     * only copies pixels.
+     */
+    private class YearView extends View {
+
+        private static final int MONTH_COLUMNS = 3;
+
+        private static final int MONTH_ROWS = 4;
+
+        /**
+         * The number of cached month bitmaps, three years.
+         */
+        private static final int MAX_CACHED_MONTHS = 36;
+
+        /**
+         * The number of months drawn into bitmaps in one frame at most, one
+         * year. The others are drawn in the next frames.
+         */
+        private static final int MAX_MONTHS_DRAWN_PER_FRAME = 12;
+
+        private final Paint mYearTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        private final Paint mMonthNamePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        private final Rect mWeekBounds = new Rect();
+
+        private final Scroller mScroller;
+
+        private final GestureDetector mGestureDetector;
+
+        private final LruCache<Integer, Bitmap> mMonthBitmaps =
+                new LruCache<Integer, Bitmap>(MAX_CACHED_MONTHS) {
+            @Override
+            protected void entryRemoved(boolean evicted, Integer key, Bitmap oldValue,
+                    Bitmap newValue) {
+                if (oldValue.getWidth() == mMonthWidth && oldValue.getHeight() == mMonthHeight) {
+                    // drawn over for the next month instead of allocating one
+                    mFreeBitmaps.add(oldValue);
+                } else {
+                    oldValue.recycle();
+                }
+            }
+        };
+
+        /**
+         * Bitmaps of the current month size dropped from the cache.
+         */
+        private final ArrayList<Bitmap> mFreeBitmaps = new ArrayList<Bitmap>();
+
+        /**
+         * The number of months drawn into bitmaps in the current frame.
+         */
+        private int mMonthsDrawnInFrame;
+
+        /**
+         * Draws the dates of the months, created for the current size.
+         */
+        private WeekPainter mPainter;
+
+        private int mHeaderHeight;
+
+        private int mMonthWidth;
+
+        private int mMonthHeight;
+
+        /**
+         * The year to show once the view has a size, or Integer.MIN_VALUE.
+         */
+        private int mPendingYear = Integer.MIN_VALUE;
+
+        public YearView(Context context) {
+            super(context);
+            mScroller = new Scroller(context);
+            mYearTextPaint.setTextAlign(Align.CENTER);
+            mYearTextPaint.setFakeBoldText(true);
+            mMonthNamePaint.setTextAlign(Align.CENTER);
+            mGestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+                @Override
+                public boolean onDown(MotionEvent e) {
+                    mScroller.forceFinished(true);
+                    return true;
+                }
+
+                @Override
+                public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX,
+                        float distanceY) {
+                    scrollTo(0, clampScroll(getScrollY() + (int) distanceY));
+                    return true;
+                }
+
+                @Override
+                public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX,
+                        float velocityY) {
+                    mScroller.fling(0, getScrollY(), 0, (int) -velocityY, 0, 0, 0,
+                            getMaxScroll());
+                    invalidate();
+                    return true;
+                }
+
+                @Override
+                public boolean onSingleTapUp(MotionEvent e) {
+                    return showMonthAt((int) e.getX(), (int) e.getY() + getScrollY());
+                }
+            });
+        }
+
+        /**
+         * Scrolls to the year of the given local day.
+         */
+        public void scrollToDay(int day) {
+            int year = WeekModel.floorDiv(WeekModel.getMonthIndex(day), 12);
+            if (getHeight() == 0) {
+                mPendingYear = year;
+                return;
+            }
+            mScroller.forceFinished(true);
+            scrollTo(0, clampScroll((year - getFirstYear()) * getHeight()));
+        }
+
+        /**
+         * Drops the drawn months, e.g. after the range or the colors changed.
+         */
+        public void clearMonths() {
+            mMonthBitmaps.evictAll();
+            mPainter = null;
+            invalidate();
+        }
+
+        private int getFirstYear() {
+            return WeekModel.floorDiv(WeekModel.getMonthIndex(mWeekModel.getMinDay()), 12);
+        }
+
+        private int getYearCount() {
+            return WeekModel.floorDiv(WeekModel.getMonthIndex(mWeekModel.getMaxDay()), 12)
+                    - getFirstYear() + 1;
+        }
+
+        private int getMaxScroll() {
+            return Math.max(0, (getYearCount() - 1) * getHeight());
+        }
+
+        private int clampScroll(int scrollY) {
+            return Math.max(0, Math.min(scrollY, getMaxScroll()));
+        }
+
+        @Override
+        protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+            super.onSizeChanged(w, h, oldw, oldh);
+            if (mPendingYear == Integer.MIN_VALUE && oldh > 0) {
+                // keep the same year on top
+                mPendingYear = getFirstYear() + getScrollY() / oldh;
+            }
+            mHeaderHeight = mDateTextSize * 3;
+            mMonthWidth = w / MONTH_COLUMNS;
+            mMonthHeight = Math.max(0, h - mHeaderHeight) / MONTH_ROWS;
+            mYearTextPaint.setTextSize(mDateTextSize * 3 / 2);
+            clearMonths();
+            // free bitmaps of the old size cannot be drawn over
+            for (int i = mFreeBitmaps.size() - 1; i >= 0; i--) {
+                Bitmap bitmap = mFreeBitmaps.get(i);
+                if (bitmap.getWidth() != mMonthWidth || bitmap.getHeight() != mMonthHeight) {
+                    bitmap.recycle();
+                    mFreeBitmaps.remove(i);
+                }
+            }
+            if (h > 0 && mPendingYear != Integer.MIN_VALUE) {
+                scrollTo(0, clampScroll((mPendingYear - getFirstYear()) * h));
+                mPendingYear = Integer.MIN_VALUE;
+            }
+        }
+
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            return mGestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+        }
+
+        @Override
+        public void computeScroll() {
+            if (mScroller.computeScrollOffset()) {
+                scrollTo(0, mScroller.getCurrY());
+                postInvalidate();
+            }
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            int height = getHeight();
+            if (height == 0 || mMonthWidth == 0 || mMonthHeight == 0) {
+                return;
+            }
+            mYearTextPaint.setColor(mWeekdayPaint.getColor());
+            mMonthsDrawnInFrame = 0;
+            int firstYear = getFirstYear();
+            int firstBlock = getScrollY() / height;
+            int lastBlock = Math.min((getScrollY() + height - 1) / height, getYearCount() - 1);
+            for (int block = firstBlock; block <= lastBlock; block++) {
+                int top = block * height;
+                int year = firstYear + block;
+                canvas.drawText(Integer.toString(year), getWidth() / 2,
+                        top + (mHeaderHeight + mYearTextPaint.getTextSize()) / 2, mYearTextPaint);
+                for (int month = 0; month < 12; month++) {
+                    Bitmap bitmap = getMonthBitmap(year * 12 + month);
+                    if (bitmap != null) {
+                        canvas.drawBitmap(bitmap, (month % MONTH_COLUMNS) * mMonthWidth,
+                                top + mHeaderHeight + (month / MONTH_COLUMNS) * mMonthHeight, null);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return The drawn month, or null if it is outside the range or if
+         *         the months of this frame were already drawn.
+         */
+        private Bitmap getMonthBitmap(int monthIndex) {
+            Bitmap bitmap = mMonthBitmaps.get(monthIndex);
+            if (bitmap != null) {
+                return bitmap;
+            }
+            int firstDay = WeekModel.getFirstDayOfMonthIndex(monthIndex);
+            int lastDay = WeekModel.getFirstDayOfMonthIndex(monthIndex + 1) - 1;
+            if (lastDay < mWeekModel.getMinDay() || firstDay > mWeekModel.getMaxDay()) {
+                return null;
+            }
+            if (mMonthsDrawnInFrame == MAX_MONTHS_DRAWN_PER_FRAME) {
+                // draw the rest in the next frame
+                ViewCompat.postInvalidateOnAnimation(this);
+                return null;
+            }
+            mMonthsDrawnInFrame++;
+            int free = mFreeBitmaps.size();
+            if (free > 0) {
+                bitmap = mFreeBitmaps.remove(free - 1);
+                bitmap.eraseColor(Color.TRANSPARENT);
+            } else {
+                bitmap = Bitmap.createBitmap(mMonthWidth, mMonthHeight, Bitmap.Config.ARGB_8888);
+            }
+            drawMonth(new Canvas(bitmap), monthIndex, firstDay, lastDay);
+            mMonthBitmaps.put(monthIndex, bitmap);
+            return bitmap;
+        }
+
+        /**
+         * Draws the name of the month and the dates of its weeks.
+         */
+        private void drawMonth(Canvas canvas, int monthIndex, int firstDay, int lastDay) {
+            // a title row and the weeks of the longest month
+            int rowHeight = mMonthHeight / (MONTH_PAGE_WEEK_COUNT + 1);
+            if (mPainter == null) {
+                mPainter = mWeekPainter.copy();
+                mPainter.setShowWeekNumber(false);
+                mPainter.setSeparator(0, 0);
+                mPainter.setDateTextSize(Math.min(mDateTextSize, rowHeight * 2 / 3));
+            }
+            int padding = mMonthWidth / 16;
+            mMonthNamePaint.setColor(mWeekdayPaint.getColor());
+            mMonthNamePaint.setTextSize(mPainter.getDateTextSize());
+            canvas.drawText(DateUtils.getMonthString(WeekModel.floorMod(monthIndex, 12),
+                    DateUtils.LENGTH_LONG), mMonthWidth / 2,
+                    (rowHeight + mMonthNamePaint.getTextSize()) / 2, mMonthNamePaint);
+            int firstWeek = mWeekModel.getWeekForDay(Math.max(firstDay, mWeekModel.getMinDay()));
+            int lastWeek = mWeekModel.getWeekForDay(Math.min(lastDay, mWeekModel.getMaxDay()));
+            for (int week = firstWeek; week <= lastWeek; week++) {
+                int top = (week - firstWeek + 1) * rowHeight;
+                mWeekBounds.set(padding, top, mMonthWidth - padding, top + rowHeight);
+                mPainter.drawDates(canvas, mWeekModel, week, mWeekBounds, false, firstDay, lastDay);
+            }
+        }
+
+        /**
+         * Shows the month at the given point of the content in the list of
+         * weeks.
+         *
+         * @return True if there is a month at the point.
+         */
+        private boolean showMonthAt(int x, int y) {
+            int height = getHeight();
+            if (height == 0 || mMonthWidth == 0 || mMonthHeight == 0) {
+                return false;
+            }
+            int block = y / height;
+            int gridY = y - block * height - mHeaderHeight;
+            if (gridY < 0) {
+                return false;
+            }
+            int column = Math.min(x / mMonthWidth, MONTH_COLUMNS - 1);
+            int row = Math.min(gridY / mMonthHeight, MONTH_ROWS - 1);
+            int monthIndex = (getFirstYear() + block) * 12 + row * MONTH_COLUMNS + column;
+            int day = WeekModel.getFirstDayOfMonthIndex(monthIndex);
+            if (day > mWeekModel.getMaxDay()
+                    || WeekModel.getFirstDayOfMonthIndex(monthIndex + 1) <= mWeekModel.getMinDay()) {
+                return false;
+            }
+            playSoundEffect(SoundEffectConstants.CLICK);
+            setDisplayMode(DISPLAY_MODE_WEEKS);
+            mTempDate.setTimeInMillis(Math.max(mWeekModel.getMillisForLocalDay(day),
+                    mMinDate.getTimeInMillis()));
+            goTo(mTempDate, false, false, true);
+            return true;
+        }
+    }
+
     private class WeeksListView extends SmoothListView {
 
 		public WeeksListView(Context context) {
@@ -1388,57 +4067,537 @@ public class CalendarView extends FrameLayout {
 		@Override
 		protected void onDraw(Canvas canvas) {
 			super.onDraw(canvas);
-			drawYearText(canvas);
+			if (!mReducedDetail) {
+				drawYearText(canvas);
+			}
 		}
 		
 		private void drawYearText(Canvas canvas) {
 			WeekView middleChild = (WeekView)getChildAt(getChildCount() / 2);
+			if (middleChild == null) {
+				return;
+			}
 			int year = middleChild.getYearOfFirstWeekDay();
         	mYearPaint.setTextSize(middleChild.getHeight());
 			canvas.drawText(Integer.toString(year), getWidth() / 2, getHeight() / 2, mYearPaint);
 		}
 		
 		public void scrollToPosition(int position, boolean animate, boolean center) {
-			mCenterScrollRunnable.execute(position, animate, center);
+			if (mCenterScroller == null) {
+				mCenterScroller = new CenterScroller();
+			}
+			mCenterScroller.execute(position, animate, center);
+		}
+
+		@Override
+		public boolean dispatchTouchEvent(MotionEvent ev) {
+			if (mScrubberEnabled) {
+				if (mScrubber == null) {
+					mScrubber = new Scrubber();
+				}
+				if (mScrubber.onTouchEvent(ev)) {
+					return true;
+				}
+			}
+			if (!mPinchZoomEnabled) {
+				return super.dispatchTouchEvent(ev);
+			}
+			if (mScaleDetector == null) {
+				mScaleDetector = new ScaleGestureDetector(getContext(), new ZoomListener());
+			}
+			boolean wasZooming = mZooming;
+			mScaleDetector.onTouchEvent(ev);
+			if (!mZooming && !wasZooming) {
+				return super.dispatchTouchEvent(ev);
+			}
+			if (mZooming && !wasZooming) {
+				// stop the scroll and the taps started by the first finger
+				MotionEvent cancel = MotionEvent.obtain(ev);
+				cancel.setAction(MotionEvent.ACTION_CANCEL);
+				super.dispatchTouchEvent(cancel);
+				cancel.recycle();
+			}
+			return true;
+		}
+
+		@Override
+		protected void dispatchDraw(Canvas canvas) {
+			if (mZooming && mZoomBitmapValid) {
+				// scale the last drawn weeks instead of binding rows every frame
+				float scale = mZoomBitmapWeekCount / mZoomWeekCount;
+				canvas.save();
+				// the rows at the anchor follow the focal point of the fingers
+				canvas.translate(0, mZoomFocusY - mZoomAnchorY);
+				canvas.scale(1, scale, 0, mZoomAnchorY);
+				canvas.drawBitmap(mZoomBitmap, 0, 0, mZoomPaint);
+				canvas.restore();
+				return;
+			}
+			super.dispatchDraw(canvas);
+			if (mScrubberEnabled && (mScrollState != OnScrollListener.SCROLL_STATE_IDLE
+					|| (mScrubber != null && mScrubber.mDragging))) {
+				if (mScrubber == null) {
+					mScrubber = new Scrubber();
+				}
+				mScrubber.draw(canvas);
+			}
+		}
+
+		private Scrubber mScrubber;
+
+		/**
+		 * A thumb on the right edge which jumps to the month at the dragged
+		 * position without scrolling through the weeks in between.
+		 */
+		private class Scrubber {
+
+			private static final int UNSCALED_THUMB_WIDTH = 6;
+
+			private static final int UNSCALED_THUMB_HEIGHT = 40;
+
+			private static final int UNSCALED_TOUCH_WIDTH = 32;
+
+			private static final int UNSCALED_BUBBLE_PADDING = 12;
+
+			private static final int UNSCALED_BUBBLE_TEXT_SIZE = 20;
+
+			private final int mThumbWidth;
+
+			private final int mThumbHeight;
+
+			private final int mTouchWidth;
+
+			private final int mBubblePadding;
+
+			private final Paint mThumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+			private final Paint mBubbleTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+			private final RectF mRect = new RectF();
+
+			private boolean mDragging;
+
+			// the section shown while dragging
+			private int mSection = -1;
+
+			// the label of the bubble, made again only when the section changes
+			private String mLabel;
+
+			private int mLabelSection = -1;
+
+			Scrubber() {
+				DisplayMetrics metrics = getResources().getDisplayMetrics();
+				mThumbWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+						UNSCALED_THUMB_WIDTH, metrics);
+				mThumbHeight = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+						UNSCALED_THUMB_HEIGHT, metrics);
+				mTouchWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+						UNSCALED_TOUCH_WIDTH, metrics);
+				mBubblePadding = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+						UNSCALED_BUBBLE_PADDING, metrics);
+				mThumbPaint.setColor(0xa0808080);
+				mBubbleTextPaint.setColor(Color.WHITE);
+				mBubbleTextPaint.setTextAlign(Align.CENTER);
+				mBubbleTextPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP,
+						UNSCALED_BUBBLE_TEXT_SIZE, metrics));
+			}
+
+			/**
+			 * @return True if the event belongs to a drag of the thumb.
+			 */
+			boolean onTouchEvent(MotionEvent ev) {
+				switch (ev.getAction() & MotionEvent.ACTION_MASK) {
+					case MotionEvent.ACTION_DOWN:
+						// the edge belongs to the rows unless the thumb is shown
+						if (mScrollState == OnScrollListener.SCROLL_STATE_IDLE
+								|| ev.getX() < getWidth() - mTouchWidth || getChildCount() == 0) {
+							return false;
+						}
+						mDragging = true;
+						scrubTo(ev.getY());
+						return true;
+					case MotionEvent.ACTION_MOVE:
+						if (!mDragging) {
+							return false;
+						}
+						scrubTo(ev.getY());
+						return true;
+					case MotionEvent.ACTION_UP:
+					case MotionEvent.ACTION_CANCEL:
+						if (!mDragging) {
+							return false;
+						}
+						mDragging = false;
+						mSection = -1;
+						invalidate();
+						return true;
+					default:
+						return mDragging;
+				}
+			}
+
+			/**
+			 * Jumps to the month at the given position of the thumb track.
+			 */
+			private void scrubTo(float y) {
+				MonthSectionIndex index = getMonthSectionIndex();
+				int track = Math.max(1, getHeight() - mThumbHeight);
+				float fraction = Math.max(0, Math.min(1, (y - mThumbHeight / 2) / track));
+				int section = Math.round(fraction * (index.getSectionCount() - 1));
+				if (section == mSection) {
+					return;
+				}
+				mSection = section;
+				int week = index.getWeekForSection(section);
+				mAdapter.ensureWeekInWindow(week);
+				setSelectionFromTop(mAdapter.getPositionForWeek(week), 0);
+				invalidate();
+			}
+
+			void draw(Canvas canvas) {
+				MonthSectionIndex index = getMonthSectionIndex();
+				int section = mSection;
+				if (section < 0) {
+					section = index.getSectionForWeek(
+							mAdapter.getWeekForPosition(getFirstVisiblePosition()));
+				}
+				int count = index.getSectionCount();
+				float fraction = count > 1 ? (float) section / (count - 1) : 0;
+				float top = fraction * (getHeight() - mThumbHeight);
+				mRect.set(getWidth() - mThumbWidth, top, getWidth(), top + mThumbHeight);
+				canvas.drawRoundRect(mRect, mThumbWidth / 2, mThumbWidth / 2, mThumbPaint);
+				if (!mDragging) {
+					return;
+				}
+				String label = getLabel(index, section);
+				float textWidth = mBubbleTextPaint.measureText(label);
+				float centerY = top + mThumbHeight / 2;
+				float halfHeight = mBubbleTextPaint.getTextSize() / 2 + mBubblePadding;
+				float right = getWidth() - mTouchWidth;
+				mRect.set(right - textWidth - 2 * mBubblePadding, centerY - halfHeight, right,
+						centerY + halfHeight);
+				canvas.drawRoundRect(mRect, mBubblePadding, mBubblePadding, mThumbPaint);
+				canvas.drawText(label, mRect.centerX(),
+						centerY - (mBubbleTextPaint.ascent() + mBubbleTextPaint.descent()) / 2,
+						mBubbleTextPaint);
+			}
+
+			private String getLabel(MonthSectionIndex index, int section) {
+				if (section != mLabelSection) {
+					mLabel = DateUtils.getMonthString(index.getMonth(section), DateUtils.LENGTH_MEDIUM)
+							+ " " + index.getYear(section);
+					mLabelSection = section;
+				}
+				return mLabel;
+			}
+		}
+
+		/**
+		 * Draws the bound rows into the zoom bitmap. The year is left out,
+		 * onDraw() draws it under the bitmap.
+		 */
+		private void captureZoomBitmap() {
+			if (getWidth() == 0 || getHeight() == 0 || getChildCount() == 0) {
+				return;
+			}
+			if (mZoomBitmap == null || mZoomBitmap.getWidth() != getWidth()
+					|| mZoomBitmap.getHeight() != getHeight()) {
+				releaseZoomBitmap();
+				mZoomBitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+			}
+			mZoomBitmap.eraseColor(Color.TRANSPARENT);
+			Canvas canvas = new Canvas(mZoomBitmap);
+			super.dispatchDraw(canvas);
+			mZoomBitmapWeekCount = mShownWeekCount;
+			mZoomBitmapValid = true;
+		}
+
+		private void releaseZoomBitmap() {
+			if (mZoomBitmap != null) {
+				mZoomBitmap.recycle();
+				mZoomBitmap = null;
+			}
+			mZoomBitmapValid = false;
+		}
+
+		/**
+		 * Shows the given number of weeks moving the week at the anchor to
+		 * the focal point.
+		 */
+		private void zoomTo(int count) {
+			float anchorY = mZoomAnchorY;
+			// the rows are laid out around the focal point from now on
+			mZoomAnchorY = mZoomFocusY;
+			View anchor = null;
+			for (int i = 0; i < getChildCount(); i++) {
+				View child = getChildAt(i);
+				if (child.getBottom() > anchorY) {
+					anchor = child;
+					break;
+				}
+			}
+			if (anchor == null || anchor.getHeight() == 0) {
+				setShownWeekCount(count);
+				return;
+			}
+			int position = getPositionForView(anchor);
+			float fraction = (anchorY - anchor.getTop()) / anchor.getHeight();
+			setShownWeekCount(count);
+			int rowHeight = getWeekHeight(mAdapter.getWeekForPosition(position));
+			setSelectionFromTop(position, (int) (mZoomFocusY - fraction * rowHeight));
+		}
+
+		/**
+		 * Takes a new zoom bitmap once the rows are laid out for the new
+		 * number of weeks.
+		 */
+		private final Runnable mCaptureZoomBitmapRunnable = new Runnable() {
+			@Override
+			public void run() {
+				if (mZooming) {
+					captureZoomBitmap();
+					invalidate();
+				}
+			}
+		};
+
+		private class ZoomListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
+
+			@Override
+			public boolean onScaleBegin(ScaleGestureDetector detector) {
+				if (getChildCount() == 0) {
+					return false;
+				}
+				mZooming = true;
+				mZoomWeekCount = mShownWeekCount;
+				mZoomFocusY = detector.getFocusY();
+				mZoomAnchorY = mZoomFocusY;
+				captureZoomBitmap();
+				return true;
+			}
+
+			@Override
+			public boolean onScale(ScaleGestureDetector detector) {
+				mZoomFocusY = detector.getFocusY();
+				mZoomWeekCount = Math.max(MIN_ZOOM_WEEK_COUNT, Math.min(MAX_ZOOM_WEEK_COUNT,
+						mZoomWeekCount / detector.getScaleFactor()));
+				int count = Math.round(mZoomWeekCount);
+				if (count != mShownWeekCount) {
+					// bind the rows once per whole week, scale the bitmap in between
+					zoomTo(count);
+					mZoomBitmapValid = false;
+					removeCallbacks(mCaptureZoomBitmapRunnable);
+					post(mCaptureZoomBitmapRunnable);
+				}
+				invalidate();
+				return true;
+			}
+
+			@Override
+			public void onScaleEnd(ScaleGestureDetector detector) {
+				mZooming = false;
+				removeCallbacks(mCaptureZoomBitmapRunnable);
+				zoomTo(Math.round(mZoomWeekCount));
+				releaseZoomBitmap();
+				invalidate();
+			}
+		}
+
+		private ScaleGestureDetector mScaleDetector;
+
+		// whether a pinch is in progress
+		private boolean mZooming;
+
+		// the fractional number of weeks shown by the pinch
+		private float mZoomWeekCount;
+
+		// the focal point of the pinch relative to this list
+		private float mZoomFocusY;
+
+		// where the rows shown at the focal point are laid out in this list
+		private float mZoomAnchorY;
+
+		// the rows drawn when the pinch started or passed a whole week
+		private Bitmap mZoomBitmap;
+
+		private boolean mZoomBitmapValid;
+
+		// the number of weeks shown in mZoomBitmap
+		private int mZoomBitmapWeekCount;
+
+		private final Paint mZoomPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+		@Override
+		protected void layoutChildren() {
+			// apply a scroll requested before the first layout in the same pass
+			if (mCenterScroller != null) {
+				mCenterScroller.applyPending();
+			}
+			super.layoutChildren();
+			// rows are kept across a change of the range only while it is laid out
+			mAdapter.mRowsReusable = false;
+			// animate the rest of a scroll that jumped near its target
+			if (mCenterScroller != null) {
+				mCenterScroller.applyPendingAnimation();
+			}
 		}
 		
-		private CenterScrollRunnable mCenterScrollRunnable = new CenterScrollRunnable();
+		/**
+		 * Scrolls to the position at the next layout, dropping a centered scroll
+		 * still waiting for it.
+		 */
+		void restoreSelectionFromTop(int position, int y) {
+			if (mCenterScroller != null) {
+				mCenterScroller.position = INVALID_POSITION;
+				mCenterScroller.animatePosition = INVALID_POSITION;
+			}
+			setSelectionFromTop(position, y);
+		}
+		
+		private CenterScroller mCenterScroller;
     
-	    private class CenterScrollRunnable implements Runnable {
+	    private class CenterScroller {
 	    	
-	    	private int position;
-	    	private boolean animate;
-	    	private boolean center;
+	    	/**
+	    	 * The duration of an animated scroll to an exact offset in milliseconds.
+	    	 */
+	    	private static final int CENTER_SCROLL_DURATION = 500;
+
+	    	/**
+	    	 * The most list heights an animated scroll covers. The list moves at
+	    	 * most about a list height per frame, so a longer scroll jumps near
+	    	 * the target first.
+	    	 */
+	    	private static final int MAX_SMOOTH_SCROLL_SCREENS = 3;
+
+	    	private int position = INVALID_POSITION;
+
+	    	// the target of an animated scroll that jumped near it, animated after the next layout
+	    	private int animatePosition = INVALID_POSITION;
+
+	    	private boolean animateCenter;
+
+	    	private boolean animatingAfterJump;
 	    	
 	    	private void execute(int position, boolean animate, boolean center) {
-	    		removeCallbacks(this);
+	    		this.position = INVALID_POSITION;
+	    		animatePosition = INVALID_POSITION;
+	    		View firstChild = getChildAt(0);
 	    		if (center) {
-	    			View firstChild = getChildAt(0);
 	    			if (firstChild != null && firstChild.getHeight() > 0) {
-	    				int offset = (getHeight() - firstChild.getHeight()) / 2;
+	    				int week = mAdapter.getWeekForPosition(position);
+	    				int offset = (getHeight() - getWeekHeight(week)) / 2;
 	    				if (animate) {
-	    					smoothScrollToPositionFromTop(position, offset);
+	    					int distance = getRowTop(week, firstChild) - offset;
+	    					if (!jumpNear(position, distance, offset, center)) {
+	    						// an exact distance retargets a running scroll from where it is instead of restarting
+	    						smoothScrollBy(distance, CENTER_SCROLL_DURATION);
+	    					}
 	    				} else {
 	    					setSelectionFromTop(position, offset);
 	    				}
 	    			} else { // child is not made yet. ex) called in constructor
 	    				this.position = position;
-	    				this.animate = animate;
-	    				this.center = center;
-	    				post(this);
+	    				requestLayout();
 	    			}
+	    		} else if (animate && firstChild != null && firstChild.getHeight() > 0) {
+	    			// scroll just enough to show the whole week
+	    			int week = mAdapter.getWeekForPosition(position);
+	    			int top = getRowTop(week, firstChild);
+	    			int bottom = top + getWeekHeight(week);
+	    			int distance = top < 0 ? top : Math.max(0, bottom - getHeight());
+	    			if (jumpNear(position, distance, 0, center)) {
+	    				return;
+	    			}
+	    			if (distance != 0 || mScrollState != OnScrollListener.SCROLL_STATE_IDLE) {
+	    				// a distance of 0 stops a scroll to an older target
+	    				smoothScrollBy(distance, CENTER_SCROLL_DURATION);
+	    			}
 	    		} else if (position < getFirstVisiblePosition() || position > getLastVisiblePosition()) {
-	    			if (animate)
-	        			smoothScrollToPosition(position);
-	    			else
-	    				setSelection(position);
+	    			setSelection(position);
 	    		}
 	    	}
-	
-			@Override
-			public void run() {
-				execute(this.position, this.animate, this.center);
-			}
+
+	    	/**
+	    	 * Jumps to a position a few list heights before the target when the
+	    	 * target is too far for an animated scroll, and animates the rest
+	    	 * after the next layout.
+	    	 *
+	    	 * @param distance The distance to scroll to reach the target.
+	    	 * @param top The top of the jump position after the jump.
+	    	 * @return Whether the list jumped.
+	    	 */
+	    	private boolean jumpNear(int position, int distance, int top, boolean center) {
+	    		if (animatingAfterJump
+	    				|| Math.abs(distance) <= MAX_SMOOTH_SCROLL_SCREENS * getHeight()) {
+	    			return false;
+	    		}
+	    		int jumpPosition;
+	    		if (mRowHeightIndex != null) {
+	    			// the week the given number of pixels before the target
+	    			int span = (MAX_SMOOTH_SCROLL_SCREENS - 1) * getHeight();
+	    			int targetOffset = mRowHeightIndex.getOffset(mAdapter.getWeekForPosition(position));
+	    			jumpPosition = mAdapter.getPositionForWeek(mRowHeightIndex.getRowAt(
+	    					distance > 0 ? targetOffset - span : targetOffset + span));
+	    		} else {
+	    			int rows = (MAX_SMOOTH_SCROLL_SCREENS - 1) * mShownWeekCount;
+	    			jumpPosition = distance > 0 ? position - rows : position + rows;
+	    		}
+	    		jumpPosition = Math.max(0, Math.min(mAdapter.getCount() - 1, jumpPosition));
+	    		// stop a running scroll, which would move the rows after the jump
+	    		smoothScrollBy(0, 0);
+	    		setSelectionFromTop(jumpPosition, top);
+	    		animatePosition = position;
+	    		animateCenter = center;
+	    		return true;
+	    	}
+
+	    	/**
+	    	 * Animates the rest of a scroll that jumped near its target, once
+	    	 * the rows around the jump position are laid out.
+	    	 */
+	    	private void applyPendingAnimation() {
+	    		if (animatePosition == INVALID_POSITION || getChildCount() == 0) {
+	    			return;
+	    		}
+	    		int target = animatePosition;
+	    		animatePosition = INVALID_POSITION;
+	    		// animate from here even if the rows were taller than guessed
+	    		animatingAfterJump = true;
+	    		try {
+	    			execute(target, true, animateCenter);
+	    		} finally {
+	    			animatingAfterJump = false;
+	    		}
+	    	}
+
+	    	/**
+	    	 * @return The top of the given week relative to the list, computed
+	    	 *         from the row heights so the weeks in between do not have
+	    	 *         to be laid out.
+	    	 */
+	    	private int getRowTop(int week, View firstChild) {
+	    		int firstWeek = mAdapter.getWeekForPosition(getFirstVisiblePosition());
+	    		if (mRowHeightIndex != null) {
+	    			return firstChild.getTop() + mRowHeightIndex.getOffset(week)
+	    					- mRowHeightIndex.getOffset(firstWeek);
+	    		}
+	    		return firstChild.getTop() + (week - firstWeek) * getUniformWeekHeight();
+	    	}
+
+	    	/**
+	    	 * Centers the pending position using the row height the rows will
+	    	 * be measured with, so no layout has to happen first.
+	    	 */
+	    	private void applyPending() {
+	    		int listHeight = getHeight() - getPaddingTop() - getPaddingBottom();
+	    		if (position == INVALID_POSITION || listHeight <= 0) {
+	    			return;
+	    		}
+	    		int rowHeight = getWeekHeight(mAdapter.getWeekForPosition(position));
+	    		setSelectionFromTop(position, (getHeight() - rowHeight) / 2);
+	    		position = INVALID_POSITION;
+	    	}
 	    }
 	}
 }
\ No newline at end of file
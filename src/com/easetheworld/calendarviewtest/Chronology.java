@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+/**
+ * A calendar system whose dates are drawn next to the Gregorian dates of a
+ * {@link CalendarView}, e.g. Hijri or lunisolar dates.
+ * <p>
+ * Days are local days since January 1, 1970, the same days a
+ * {@link CalendarView} counts. Months are counted from the first month the
+ * chronology knows, so consecutive months have consecutive numbers and a row
+ * only needs to find the month of its first day.
+ * <p>
+ * Implementations must be thread safe, they are read by the renderers too.
+ *
+ * @see CalendarView#setSecondaryChronology(Chronology)
+ * @see HijriChronology
+ * @see LunisolarChronology
+ */
+public interface Chronology {
+
+    /**
+     * @return The first local day with a date in this chronology.
+     */
+    public int getMinDay();
+
+    /**
+     * @return The last local day with a date in this chronology.
+     */
+    public int getMaxDay();
+
+    /**
+     * @param day A local day from {@link #getMinDay()} to {@link #getMaxDay()}.
+     * @return The month holding the day.
+     */
+    public int getMonth(int day);
+
+    /**
+     * @param month A month, or the one after the last month to find the end
+     *            of the last month.
+     * @return The local day the month starts with.
+     */
+    public int getFirstDayOfMonth(int month);
+
+    /**
+     * @return The year of the given month.
+     */
+    public int getYear(int month);
+
+    /**
+     * @return The month of year of the given month, from 1. A leap month has
+     *         the number of the month it follows.
+     */
+    public int getMonthOfYear(int month);
+
+    /**
+     * @return True if the given month is an intercalary month.
+     */
+    public boolean isLeapMonth(int month);
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Per-day integer records stored in a file and read through a memory mapping,
+ * so the values of decades of days never live on the Java heap.
+ * <p>
+ * Days are local days since January 1, 1970, the same days a
+ * {@link CalendarView} counts. Every day of the stored range has a record of
+ * {@link #getFieldCount()} ints and days outside the range read as 0. The file
+ * is a header of five ints (magic, version, first day, day count, field count)
+ * followed by the records in big endian order.
+ * <p>
+ * Reading is thread safe. Use {@link Writer} to create a file.
+ *
+ * @see CalendarView#setDayDataStore(DayDataStore, int)
+ */
+public final class DayDataStore {
+
+    private static final int MAGIC = 0x43564444; // CVDD
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_INTS = 5;
+
+    private static final int BYTES_PER_INT = 4;
+
+    private final IntBuffer mRecords;
+
+    private final int mFirstDay;
+
+    private final int mDayCount;
+
+    private final int mFieldCount;
+
+    private DayDataStore(IntBuffer records, int firstDay, int dayCount, int fieldCount) {
+        mRecords = records;
+        mFirstDay = firstDay;
+        mDayCount = dayCount;
+        mFieldCount = fieldCount;
+    }
+
+    /**
+     * Opens a file written by {@link Writer}. The mapping stays valid after
+     * this returns, no file handle is kept open.
+     *
+     * @throws IOException If the file cannot be read or is not a store.
+     */
+    public static DayDataStore open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            IntBuffer ints = buffer.asIntBuffer();
+            if (ints.remaining() < HEADER_INTS || ints.get(0) != MAGIC) {
+                throw new IOException("Not a day data store: " + file);
+            }
+            if (ints.get(1) != VERSION) {
+                throw new IOException("Unsupported day data store version " + ints.get(1));
+            }
+            int firstDay = ints.get(2);
+            int dayCount = ints.get(3);
+            int fieldCount = ints.get(4);
+            if (dayCount < 0 || fieldCount <= 0
+                    || ints.remaining() - HEADER_INTS < (long) dayCount * fieldCount) {
+                throw new IOException("Truncated day data store: " + file);
+            }
+            ints.position(HEADER_INTS);
+            return new DayDataStore(ints.slice(), firstDay, dayCount, fieldCount);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return The first local day with a record.
+     */
+    public int getFirstDay() {
+        return mFirstDay;
+    }
+
+    /**
+     * @return The number of days with a record.
+     */
+    public int getDayCount() {
+        return mDayCount;
+    }
+
+    /**
+     * @return The number of ints in the record of a day.
+     */
+    public int getFieldCount() {
+        return mFieldCount;
+    }
+
+    /**
+     * @param day The local day.
+     * @param field The index of the value in the record of the day.
+     * @return The value or 0 if the day has no record.
+     */
+    public int getValue(int day, int field) {
+        checkField(field);
+        int index = day - mFirstDay;
+        if (index < 0 || index >= mDayCount) {
+            return 0;
+        }
+        return mRecords.get(index * mFieldCount + field);
+    }
+
+    /**
+     * Reads one field of consecutive days.
+     *
+     * @param startDay The local day of the first value.
+     * @param field The index of the value in the record of a day.
+     * @param out Receives the values, one per day. Days without a record read
+     *            as 0.
+     */
+    public void getValues(int startDay, int field, int[] out) {
+        checkField(field);
+        for (int i = 0; i < out.length; i++) {
+            int index = startDay + i - mFirstDay;
+            out[i] = index < 0 || index >= mDayCount ? 0 : mRecords.get(index * mFieldCount + field);
+        }
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= mFieldCount) {
+            throw new IndexOutOfBoundsException("field " + field + " of " + mFieldCount);
+        }
+    }
+
+    /**
+     * Creates a store file for bulk import. All values start as 0 and are set
+     * directly in a writable mapping of the file.
+     * <p>
+     * The writer must only be used from one thread.
+     */
+    public static final class Writer {
+
+        private final RandomAccessFile mFile;
+
+        private final MappedByteBuffer mBuffer;
+
+        private final IntBuffer mRecords;
+
+        private final int mFirstDay;
+
+        private final int mDayCount;
+
+        private final int mFieldCount;
+
+        /**
+         * Creates or replaces the given file.
+         *
+         * @param firstDay The first local day with a record.
+         * @param dayCount The number of days with a record.
+         * @param fieldCount The number of ints in the record of a day.
+         * @throws IOException If the file cannot be created.
+         */
+        public Writer(File file, int firstDay, int dayCount, int fieldCount) throws IOException {
+            if (dayCount < 0 || fieldCount <= 0) {
+                throw new IllegalArgumentException("dayCount " + dayCount + ", fieldCount "
+                        + fieldCount);
+            }
+            long size = ((long) HEADER_INTS + (long) dayCount * fieldCount) * BYTES_PER_INT;
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Store too large: " + size + " bytes");
+            }
+            mFirstDay = firstDay;
+            mDayCount = dayCount;
+            mFieldCount = fieldCount;
+            mFile = new RandomAccessFile(file, "rw");
+            try {
+                mFile.setLength(0);
+                mFile.setLength(size);
+                mBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                mFile.close();
+                throw e;
+            }
+            IntBuffer ints = mBuffer.asIntBuffer();
+            ints.put(0, MAGIC);
+            ints.put(1, VERSION);
+            ints.put(2, firstDay);
+            ints.put(3, dayCount);
+            ints.put(4, fieldCount);
+            ints.position(HEADER_INTS);
+            mRecords = ints.slice();
+        }
+
+        /**
+         * Sets one value.
+         *
+         * @param day The local day, which must be in the range of the store.
+         * @param field The index of the value in the record of the day.
+         */
+        public void setValue(int day, int field, int value) {
+            mRecords.put(getIndex(day, field), value);
+        }
+
+        /**
+         * Adds to one value, e.g. to count events while importing them.
+         *
+         * @param day The local day, which must be in the range of the store.
+         * @param field The index of the value in the record of the day.
+         */
+        public void addValue(int day, int field, int delta) {
+            int index = getIndex(day, field);
+            mRecords.put(index, mRecords.get(index) + delta);
+        }
+
+        private int getIndex(int day, int field) {
+            int index = day - mFirstDay;
+            if (index < 0 || index >= mDayCount || field < 0 || field >= mFieldCount) {
+                throw new IndexOutOfBoundsException("day " + day + ", field " + field);
+            }
+            return index * mFieldCount + field;
+        }
+
+        /**
+         * Writes the values to the file and closes it.
+         *
+         * @throws IOException If the file cannot be written.
+         */
+        public void close() throws IOException {
+            mBuffer.force();
+            mFile.close();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.graphics.Typeface;
+import android.os.Process;
+import android.support.v4.util.LruCache;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+/**
+ * A bounded cache of event titles ellipsized to the width of a day cell, so
+ * scrolling back over the same weeks does not measure the titles again.
+ * <p>
+ * Entries are keyed by the text, the width and the text style of the paint.
+ * Lookups can happen on any thread, titles of rows not bound yet can be
+ * measured on a background thread with {@link #prefetch(String[], int, TextPaint)}.
+ */
+final class EventTextCache {
+
+    private static final int DEFAULT_MAX_SIZE = 512;
+
+    /**
+     * The thread measuring prefetched titles, shared by all caches.
+     */
+    private static ExecutorService sExecutor;
+
+    private final LruCache<Key, String> mCache;
+
+    EventTextCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum number of ellipsized titles kept.
+     */
+    EventTextCache(int maxSize) {
+        mCache = new LruCache<Key, String>(maxSize);
+    }
+
+    /**
+     * Gets the text ellipsized to the given width, measuring it if it is not
+     * cached.
+     *
+     * @param paint The paint the text is drawn with. It must not be used by
+     *            another thread during this call.
+     */
+    public String getEllipsized(String text, int width, TextPaint paint) {
+        Key key = new Key(text, width, paint);
+        String ellipsized = mCache.get(key);
+        if (ellipsized == null) {
+            ellipsized = TextUtils.ellipsize(text, paint, width, TextUtils.TruncateAt.END)
+                    .toString();
+            mCache.put(key, ellipsized);
+        }
+        return ellipsized;
+    }
+
+    /**
+     * Measures the given texts on a background thread so a later
+     * {@link #getEllipsized(String, int, TextPaint)} finds them cached.
+     *
+     * @param texts The texts, null elements are skipped.
+     * @param paint The paint the texts will be drawn with. It is copied.
+     */
+    public void prefetch(final String[] texts, final int width, TextPaint paint) {
+        final TextPaint paintCopy = new TextPaint(paint);
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (String text : texts) {
+                    if (text != null) {
+                        getEllipsized(text, width, paintCopy);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes all titles, e.g. after the event texts changed.
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread("CalendarView text") {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    };
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    /**
+     * The text, width and style an ellipsized title was measured for.
+     */
+    private static final class Key {
+        final String text;
+        final int width;
+        final float textSize;
+        final float textScaleX;
+        final Typeface typeface;
+        final boolean fakeBold;
+
+        Key(String text, int width, TextPaint paint) {
+            this.text = text;
+            this.width = width;
+            this.textSize = paint.getTextSize();
+            this.textScaleX = paint.getTextScaleX();
+            this.typeface = paint.getTypeface();
+            this.fakeBold = paint.isFakeBoldText();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return width == other.width && textSize == other.textSize
+                    && textScaleX == other.textScaleX && typeface == other.typeface
+                    && fakeBold == other.fakeBold && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text.hashCode();
+            result = 31 * result + width;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + Float.floatToIntBits(textScaleX);
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + (fakeBold ? 1 : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+/**
+ * The Hijri calendar from a table of month lengths, one short per year whose
+ * bit i is set if month i of the year has 30 days instead of 29.
+ * <p>
+ * {@link #createTabular(int, int)} builds the table of the arithmetical
+ * calendar with the civil epoch. Deployments following an observed calendar,
+ * e.g. Umm al-Qura, pass its month lengths to the constructor instead.
+ */
+public final class HijriChronology extends MonthTableChronology {
+
+    /**
+     * The local day of 1 Muharram 1 AH in the civil epoch, July 16, 622 in
+     * the Julian calendar.
+     */
+    public static final int CIVIL_EPOCH_DAY = -492148;
+
+    private static final int MONTHS_PER_YEAR = 12;
+
+    private static final int DAYS_PER_COMMON_YEAR = 354;
+
+    /**
+     * The number of years the leap years repeat after.
+     */
+    private static final int LEAP_CYCLE_YEARS = 30;
+
+    /**
+     * The number of leap years in a cycle.
+     */
+    private static final int LEAP_YEARS_PER_CYCLE = 11;
+
+    /**
+     * The month lengths of a common year of the arithmetical calendar, the
+     * odd months from Muharram have 30 days.
+     */
+    private static final short COMMON_YEAR_LONG_MONTHS = 0x555;
+
+    /**
+     * Dhu al-Hijjah has 30 days in a leap year.
+     */
+    private static final short LEAP_YEAR_LONG_MONTHS = 0xd55;
+
+    /**
+     * @param firstYear The year of the first entry of the table.
+     * @param firstYearStartDay The local day of 1 Muharram of the first year.
+     * @param longMonths The months with 30 days of each year, bit 0 being
+     *            Muharram.
+     */
+    public HijriChronology(int firstYear, int firstYearStartDay, short[] longMonths) {
+        allocateMonths(longMonths.length * MONTHS_PER_YEAR);
+        int day = firstYearStartDay;
+        int month = 0;
+        for (int i = 0; i < longMonths.length; i++) {
+            for (int monthOfYear = 0; monthOfYear < MONTHS_PER_YEAR; monthOfYear++) {
+                setMonth(month++, day, firstYear + i, monthOfYear + 1, false);
+                day += (longMonths[i] & (1 << monthOfYear)) != 0 ? 30 : 29;
+            }
+        }
+        setEndDay(day);
+    }
+
+    /**
+     * Creates the arithmetical Hijri calendar with the civil epoch, in which
+     * 11 years of each 30 years cycle have a 30th day in Dhu al-Hijjah.
+     *
+     * @param firstYear The first year, from 1.
+     * @param yearCount The number of years.
+     */
+    public static HijriChronology createTabular(int firstYear, int yearCount) {
+        if (firstYear < 1 || yearCount < 1) {
+            throw new IllegalArgumentException("Invalid years: " + firstYear + ", " + yearCount);
+        }
+        short[] longMonths = new short[yearCount];
+        for (int i = 0; i < yearCount; i++) {
+            longMonths[i] = isTabularLeapYear(firstYear + i) ? LEAP_YEAR_LONG_MONTHS
+                    : COMMON_YEAR_LONG_MONTHS;
+        }
+        int firstYearStartDay = CIVIL_EPOCH_DAY + (firstYear - 1) * DAYS_PER_COMMON_YEAR
+                + (3 + LEAP_YEARS_PER_CYCLE * firstYear) / LEAP_CYCLE_YEARS;
+        return new HijriChronology(firstYear, firstYearStartDay, longMonths);
+    }
+
+    private static boolean isTabularLeapYear(int year) {
+        return (14 + LEAP_YEARS_PER_CYCLE * year) % LEAP_CYCLE_YEARS < LEAP_YEARS_PER_CYCLE;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+/**
+ * A lunisolar calendar, e.g. the Chinese or the Korean one, from a table of
+ * one int per year:
+ * <ul>
+ * <li>bits 0 to 12 are set for the months with 30 days instead of 29, in
+ * order with the leap month in its place,</li>
+ * <li>bits 13 to 16 hold the regular month the leap month follows, 0 if the
+ * year has no leap month.</li>
+ * </ul>
+ * No table is bundled since it comes from astronomical computation and
+ * differs between the Chinese and the Korean calendar. Deployments pass the
+ * table published by their authority.
+ */
+public final class LunisolarChronology extends MonthTableChronology {
+
+    /**
+     * The shift of the leap month in the entry of a year.
+     */
+    public static final int LEAP_MONTH_SHIFT = 13;
+
+    private static final int LEAP_MONTH_MASK = 0xf;
+
+    private static final int MONTHS_PER_YEAR = 12;
+
+    /**
+     * @param firstYear The year of the first entry of the table.
+     * @param firstYearStartDay The local day of the first day of the first
+     *            year.
+     * @param yearInfos The entry of each year.
+     */
+    public LunisolarChronology(int firstYear, int firstYearStartDay, int[] yearInfos) {
+        int monthCount = 0;
+        for (int i = 0; i < yearInfos.length; i++) {
+            monthCount += getLeapMonth(yearInfos[i]) != 0 ? MONTHS_PER_YEAR + 1 : MONTHS_PER_YEAR;
+        }
+        allocateMonths(monthCount);
+        int day = firstYearStartDay;
+        int month = 0;
+        for (int i = 0; i < yearInfos.length; i++) {
+            int leapMonth = getLeapMonth(yearInfos[i]);
+            if (leapMonth > MONTHS_PER_YEAR) {
+                throw new IllegalArgumentException("Invalid leap month of year " + (firstYear + i));
+            }
+            int monthOfYear = 1;
+            for (int j = 0; j < (leapMonth != 0 ? MONTHS_PER_YEAR + 1 : MONTHS_PER_YEAR); j++) {
+                boolean leap = leapMonth != 0 && j == leapMonth;
+                if (leap) {
+                    monthOfYear--;
+                }
+                setMonth(month++, day, firstYear + i, monthOfYear++, leap);
+                day += (yearInfos[i] & (1 << j)) != 0 ? 30 : 29;
+            }
+        }
+        setEndDay(day);
+    }
+
+    private static int getLeapMonth(int yearInfo) {
+        return (yearInfo >> LEAP_MONTH_SHIFT) & LEAP_MONTH_MASK;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+/**
+ * The months of a {@link WeekModel} as sections of its weeks. Both directions
+ * are computed without a table, so the index costs nothing for ranges of
+ * thousands of years.
+ */
+final class MonthSectionIndex {
+
+    private final WeekModel mModel;
+
+    /**
+     * The month of the min date, see {@link WeekModel#getMonthIndex(int)}.
+     */
+    private final int mFirstMonth;
+
+    private final int mSectionCount;
+
+    MonthSectionIndex(WeekModel model) {
+        mModel = model;
+        mFirstMonth = WeekModel.getMonthIndex(model.getMinDay());
+        mSectionCount = WeekModel.getMonthIndex(model.getMaxDay()) - mFirstMonth + 1;
+    }
+
+    /**
+     * @return The number of months in the range.
+     */
+    public int getSectionCount() {
+        return mSectionCount;
+    }
+
+    /**
+     * @return The week containing the first day of the given month which is
+     *         in the range.
+     */
+    public int getWeekForSection(int section) {
+        section = Math.max(0, Math.min(section, mSectionCount - 1));
+        int day = WeekModel.getFirstDayOfMonthIndex(mFirstMonth + section);
+        return mModel.getWeekForDay(Math.max(day, mModel.getMinDay()));
+    }
+
+    /**
+     * @return The month of the given local day, clamped to the range.
+     */
+    public int getSectionForDay(int day) {
+        int section = WeekModel.getMonthIndex(day) - mFirstMonth;
+        return Math.max(0, Math.min(section, mSectionCount - 1));
+    }
+
+    /**
+     * @return The month of the first day in the range of the given week.
+     */
+    public int getSectionForWeek(int week) {
+        int day = Math.max(mModel.getWeekStartDay(week), mModel.getMinDay());
+        int section = WeekModel.getMonthIndex(Math.min(day, mModel.getMaxDay())) - mFirstMonth;
+        return Math.max(0, Math.min(section, mSectionCount - 1));
+    }
+
+    /**
+     * @return The year of the given month.
+     */
+    public int getYear(int section) {
+        return WeekModel.floorDiv(mFirstMonth + section, 12);
+    }
+
+    /**
+     * @return The month of year of the given month, e.g.
+     *         {@link java.util.Calendar#JANUARY}.
+     */
+    public int getMonth(int section) {
+        return WeekModel.floorMod(mFirstMonth + section, 12);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+/**
+ * A {@link Chronology} whose months are expanded from a compact table when it
+ * is created, the local day each month starts with in a sorted array and its
+ * year and month of year next to it. Finding the month of a day is a binary
+ * search and everything else is an array lookup.
+ */
+abstract class MonthTableChronology implements Chronology {
+
+    /**
+     * The local day each month starts with, followed by the day after the
+     * last month.
+     */
+    private int[] mMonthStartDays;
+
+    private int[] mYears;
+
+    private byte[] mMonthsOfYear;
+
+    private boolean[] mLeapMonths;
+
+    /**
+     * Allocates the table, subclasses then set every month in order with
+     * {@link #setMonth(int, int, int, int, boolean)} and
+     * {@link #setEndDay(int)}.
+     */
+    void allocateMonths(int monthCount) {
+        mMonthStartDays = new int[monthCount + 1];
+        mYears = new int[monthCount];
+        mMonthsOfYear = new byte[monthCount];
+        mLeapMonths = new boolean[monthCount];
+    }
+
+    void setMonth(int month, int startDay, int year, int monthOfYear, boolean leap) {
+        mMonthStartDays[month] = startDay;
+        mYears[month] = year;
+        mMonthsOfYear[month] = (byte) monthOfYear;
+        mLeapMonths[month] = leap;
+    }
+
+    /**
+     * Sets the day after the last month.
+     */
+    void setEndDay(int day) {
+        mMonthStartDays[mYears.length] = day;
+    }
+
+    @Override
+    public int getMinDay() {
+        return mMonthStartDays[0];
+    }
+
+    @Override
+    public int getMaxDay() {
+        return mMonthStartDays[mYears.length] - 1;
+    }
+
+    @Override
+    public int getMonth(int day) {
+        // the last month starting at or before the day
+        int low = 0;
+        int high = mYears.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mMonthStartDays[mid] <= day) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low - 1;
+    }
+
+    @Override
+    public int getFirstDayOfMonth(int month) {
+        return mMonthStartDays[month];
+    }
+
+    @Override
+    public int getYear(int month) {
+        return mYears[month];
+    }
+
+    @Override
+    public int getMonthOfYear(int month) {
+        return mMonthsOfYear[month];
+    }
+
+    @Override
+    public boolean isLeapMonth(int month) {
+        return mLeapMonths[month];
+    }
+}
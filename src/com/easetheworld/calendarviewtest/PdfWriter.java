@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Writes a PDF whose pages are each one JPEG image. Every page is written as
+ * soon as it is added, only the offsets of the written objects are kept, so
+ * documents of any length are written in constant memory.
+ * <p>
+ * Objects 1 and 2 are the catalog and the page tree, written last because
+ * the page tree lists all pages. Each page takes three more objects, the
+ * image, the content stream drawing it and the page.
+ */
+final class PdfWriter {
+
+    private static final int CATALOG_OBJECT = 1;
+
+    private static final int PAGES_OBJECT = 2;
+
+    private static final int OBJECTS_PER_PAGE = 3;
+
+    private final OutputStream mOut;
+
+    private long mOffset;
+
+    /**
+     * The offsets of the objects, index 0 is the free object 0.
+     */
+    private long[] mObjectOffsets = new long[16];
+
+    private int mObjectCount = PAGES_OBJECT + 1;
+
+    private int mPageCount;
+
+    private boolean mClosed;
+
+    /**
+     * Writes the header of the document.
+     *
+     * @param out The stream of the document, closed by {@link #close()}.
+     */
+    PdfWriter(OutputStream out) throws IOException {
+        mOut = out;
+        write("%PDF-1.4\n");
+        // binary bytes so transfers treat the file as binary
+        write(new byte[] {'%', (byte) 0xe2, (byte) 0xe3, (byte) 0xcf, (byte) 0xd3, '\n'}, 0, 6);
+    }
+
+    /**
+     * @return The number of pages written.
+     */
+    public int getPageCount() {
+        return mPageCount;
+    }
+
+    /**
+     * Writes a page showing the given image over the whole page.
+     *
+     * @param jpeg The buffer holding the baseline JPEG data of the image.
+     * @param length The number of bytes of the JPEG data.
+     * @param imageWidth The width of the image in pixels.
+     * @param imageHeight The height of the image in pixels.
+     * @param pageWidth The width of the page in points.
+     * @param pageHeight The height of the page in points.
+     */
+    public void addJpegPage(byte[] jpeg, int length, int imageWidth, int imageHeight,
+            int pageWidth, int pageHeight) throws IOException {
+        int image = startObject();
+        write("<< /Type /XObject /Subtype /Image /Width " + imageWidth + " /Height "
+                + imageHeight + " /ColorSpace /DeviceRGB /BitsPerComponent 8"
+                + " /Filter /DCTDecode /Length " + length + " >>\nstream\n");
+        write(jpeg, 0, length);
+        write("\nendstream\nendobj\n");
+
+        String content = "q " + pageWidth + " 0 0 " + pageHeight + " 0 0 cm /Im0 Do Q\n";
+        int contentObject = startObject();
+        write("<< /Length " + content.length() + " >>\nstream\n" + content
+                + "endstream\nendobj\n");
+
+        startObject();
+        write("<< /Type /Page /Parent " + PAGES_OBJECT + " 0 R /MediaBox [0 0 " + pageWidth
+                + " " + pageHeight + "] /Resources << /XObject << /Im0 " + image
+                + " 0 R >> >> /Contents " + contentObject + " 0 R >>\nendobj\n");
+        mPageCount++;
+        mOut.flush();
+    }
+
+    /**
+     * Writes the page tree, the catalog and the cross reference table, then
+     * closes the stream.
+     */
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        try {
+            setObjectOffset(PAGES_OBJECT);
+            StringBuilder kids = new StringBuilder();
+            for (int i = 0; i < mPageCount; i++) {
+                int page = PAGES_OBJECT + (i + 1) * OBJECTS_PER_PAGE;
+                kids.append(page).append(" 0 R ");
+            }
+            write(PAGES_OBJECT + " 0 obj\n<< /Type /Pages /Kids [" + kids + "] /Count "
+                    + mPageCount + " >>\nendobj\n");
+
+            setObjectOffset(CATALOG_OBJECT);
+            write(CATALOG_OBJECT + " 0 obj\n<< /Type /Catalog /Pages " + PAGES_OBJECT
+                    + " 0 R >>\nendobj\n");
+
+            long xref = mOffset;
+            StringBuilder table = new StringBuilder();
+            table.append("xref\n0 ").append(mObjectCount).append('\n');
+            table.append("0000000000 65535 f \n");
+            for (int i = 1; i < mObjectCount; i++) {
+                table.append(String.format(Locale.US, "%010d 00000 n \n", mObjectOffsets[i]));
+            }
+            table.append("trailer\n<< /Size ").append(mObjectCount).append(" /Root ")
+                    .append(CATALOG_OBJECT).append(" 0 R >>\nstartxref\n").append(xref)
+                    .append("\n%%EOF\n");
+            write(table.toString());
+        } finally {
+            mOut.close();
+        }
+    }
+
+    /**
+     * Starts the next object at the current offset.
+     *
+     * @return The number of the object.
+     */
+    private int startObject() throws IOException {
+        int object = mObjectCount++;
+        setObjectOffset(object);
+        write(object + " 0 obj\n");
+        return object;
+    }
+
+    private void setObjectOffset(int object) {
+        if (object >= mObjectOffsets.length) {
+            long[] offsets = new long[Math.max(object + 1, mObjectOffsets.length * 2)];
+            System.arraycopy(mObjectOffsets, 0, offsets, 0, mObjectOffsets.length);
+            mObjectOffsets = offsets;
+        }
+        mObjectOffsets[object] = mOffset;
+    }
+
+    private void write(String text) throws IOException {
+        // all the syntax written is ASCII
+        byte[] bytes = text.getBytes("US-ASCII");
+        write(bytes, 0, bytes.length);
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        mOut.write(bytes, offset, length);
+        mOffset += length;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+/**
+ * The heights of rows which are not all the same, kept in a Fenwick tree so
+ * the pixel offset of any row and the row at any pixel offset are found in
+ * logarithmic time.
+ * <p>
+ * Rows which were never measured have the default height.
+ */
+final class RowHeightIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * The Fenwick tree, one based. mTree[i] is the sum of the heights of the
+     * lowest set bit of i rows ending with row i - 1.
+     */
+    private int[] mTree = EMPTY;
+
+    private int[] mHeights = EMPTY;
+
+    private int mCount;
+
+    private int mDefaultHeight;
+
+    /**
+     * Forgets all heights.
+     *
+     * @param count The number of rows.
+     * @param defaultHeight The height of rows which are not measured.
+     */
+    public void reset(int count, int defaultHeight) {
+        if (mTree.length != count + 1) {
+            mTree = new int[count + 1];
+            mHeights = new int[count];
+        }
+        mCount = count;
+        mDefaultHeight = defaultHeight;
+        for (int i = 0; i < count; i++) {
+            mHeights[i] = defaultHeight;
+        }
+        for (int i = 1; i <= count; i++) {
+            mTree[i] = defaultHeight * (i & -i);
+        }
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getDefaultHeight() {
+        return mDefaultHeight;
+    }
+
+    public int getHeight(int row) {
+        return row >= 0 && row < mCount ? mHeights[row] : mDefaultHeight;
+    }
+
+    /**
+     * Sets the measured height of a row. Rows outside the index are ignored.
+     */
+    public void setHeight(int row, int height) {
+        if (row < 0 || row >= mCount) {
+            return;
+        }
+        int delta = height - mHeights[row];
+        if (delta == 0) {
+            return;
+        }
+        mHeights[row] = height;
+        for (int i = row + 1; i <= mCount; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * @return The sum of the heights of the rows before the given row.
+     */
+    public int getOffset(int row) {
+        int offset = 0;
+        for (int i = Math.min(row, mCount); i > 0; i -= i & -i) {
+            offset += mTree[i];
+        }
+        return offset;
+    }
+
+    /**
+     * @return The row containing the given pixel offset, clamped to the rows
+     *         of the index.
+     */
+    public int getRowAt(int offset) {
+        if (mCount == 0) {
+            return 0;
+        }
+        int row = 0;
+        for (int step = Integer.highestOneBit(mCount); step > 0; step >>= 1) {
+            int next = row + step;
+            if (next <= mCount && mTree[next] <= offset) {
+                row = next;
+                offset -= mTree[next];
+            }
+        }
+        return Math.min(row, mCount - 1);
+    }
+}
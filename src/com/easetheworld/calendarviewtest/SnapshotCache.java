@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Stores a picture of a settled {@link CalendarView} in a file so the next
+ * start can show it before the real rows are bound.
+ * <p>
+ * The file holds a small header with the configuration key, the selected
+ * week and the scroll position the picture was taken for, followed by the
+ * raw ARGB_8888 pixels which are copied straight from a memory mapping of the
+ * file. A snapshot whose key does not match or which cannot be read is
+ * deleted on read.
+ */
+final class SnapshotCache {
+
+    private static final String LOG_TAG = SnapshotCache.class.getSimpleName();
+
+    private static final int MAGIC = 0x43565332; // CVS2
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    // the magic and the length of the key
+    private static final int HEADER_START_SIZE = 4 + 2;
+
+    // the weeks, the scroll position and the size after the key
+    private static final int HEADER_END_SIZE = 5 * 4;
+
+    /**
+     * The thread reading and writing snapshots, shared by all caches.
+     */
+    private static ExecutorService sExecutor;
+
+    private final File mFile;
+
+    SnapshotCache(File file) {
+        mFile = file;
+    }
+
+    /**
+     * A stored picture and where the weeks were scrolled to when it was taken.
+     */
+    static final class Snapshot {
+        final Bitmap bitmap;
+        final int week;
+        final int firstWeek;
+        final int firstWeekTop;
+
+        Snapshot(Bitmap bitmap, int week, int firstWeek, int firstWeekTop) {
+            this.bitmap = bitmap;
+            this.week = week;
+            this.firstWeek = firstWeek;
+            this.firstWeekTop = firstWeekTop;
+        }
+    }
+
+    /**
+     * Reads the snapshot if it was written for the given key and week. This
+     * can be called from any thread.
+     *
+     * @return The snapshot or null.
+     */
+    public Snapshot read(String key, int week) {
+        if (!mFile.exists()) {
+            return null;
+        }
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mFile, "r");
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            if (size < HEADER_START_SIZE + HEADER_END_SIZE) {
+                // e.g. a file left empty by a crash while it was written
+                throw new IOException("Truncated snapshot header");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot");
+            }
+            int keyLength = buffer.getShort() & 0xffff;
+            if (buffer.remaining() < keyLength + HEADER_END_SIZE) {
+                throw new IOException("Truncated snapshot header");
+            }
+            byte[] storedKey = new byte[keyLength];
+            buffer.get(storedKey);
+            int storedWeek = buffer.getInt();
+            int firstWeek = buffer.getInt();
+            int firstWeekTop = buffer.getInt();
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            if (!key.equals(new String(storedKey, "UTF-8")) || storedWeek != week) {
+                // the configuration or the date changed
+                mFile.delete();
+                return null;
+            }
+            if (width <= 0 || height <= 0
+                    || buffer.remaining() != (long) width * height * BYTES_PER_PIXEL) {
+                throw new IOException("Truncated snapshot");
+            }
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmap.copyPixelsFromBuffer(buffer);
+            return new Snapshot(bitmap, week, firstWeek, firstWeekTop);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Cannot read snapshot " + mFile, e);
+            mFile.delete();
+            return null;
+        } catch (RuntimeException e) {
+            // a corrupt header must not fail every start
+            Log.w(LOG_TAG, "Cannot read snapshot " + mFile, e);
+            mFile.delete();
+            return null;
+        } catch (OutOfMemoryError e) {
+            Log.w(LOG_TAG, "Cannot read snapshot " + mFile, e);
+            mFile.delete();
+            return null;
+        } finally {
+            close(file);
+        }
+    }
+
+    /**
+     * Writes the snapshot. This can be called from any thread.
+     *
+     * @param firstWeek The first shown week.
+     * @param firstWeekTop The top of the first shown week.
+     */
+    public void write(Bitmap bitmap, String key, int week, int firstWeek, int firstWeekTop) {
+        File tempFile = new File(mFile.getPath() + ".tmp");
+        RandomAccessFile file = null;
+        try {
+            byte[] keyBytes = key.getBytes("UTF-8");
+            int pixelBytes = bitmap.getWidth() * bitmap.getHeight() * BYTES_PER_PIXEL;
+            ByteBuffer buffer = ByteBuffer.allocate(4 + 2 + keyBytes.length + 5 * 4 + pixelBytes);
+            buffer.putInt(MAGIC);
+            buffer.putShort((short) keyBytes.length);
+            buffer.put(keyBytes);
+            buffer.putInt(week);
+            buffer.putInt(firstWeek);
+            buffer.putInt(firstWeekTop);
+            buffer.putInt(bitmap.getWidth());
+            buffer.putInt(bitmap.getHeight());
+            bitmap.copyPixelsToBuffer(buffer);
+            buffer.flip();
+
+            file = new RandomAccessFile(tempFile, "rw");
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // the data must be on disk before the rename replaces the old file
+            channel.force(true);
+            close(file);
+            file = null;
+            if (!tempFile.renameTo(mFile)) {
+                throw new IOException("Cannot rename " + tempFile);
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Cannot write snapshot " + mFile, e);
+            tempFile.delete();
+        } catch (OutOfMemoryError e) {
+            Log.w(LOG_TAG, "Cannot write snapshot " + mFile, e);
+            tempFile.delete();
+        } finally {
+            close(file);
+        }
+    }
+
+    /**
+     * Deletes the stored snapshot.
+     */
+    public void clear() {
+        mFile.delete();
+    }
+
+    /**
+     * @return The single background thread snapshots are read and written on.
+     */
+    static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread("CalendarView snapshot") {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    };
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    private static void close(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,588 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Immutable description of the weeks shown by a {@link CalendarView} and of
+ * the locale dependent strings used to draw them.
+ * <p>
+ * Days are counted as local days since January 1, 1970 and weeks as weeks
+ * since the week of the min date. Instances are shared by all calendars with
+ * the same range, first day of week, locale and time zone, so memory grows
+ * with the number of distinct configurations, not with the number of views.
+ * Use {@link #obtain(long, long, int, Locale, TimeZone)} and {@link #release()}
+ * in pairs.
+ * <p>
+ * The offset transitions of the time zone are found when a span of about a
+ * year is first converted and kept in a small table per span, so converting
+ * between times and local days is a lookup instead of calls to
+ * {@link TimeZone#getOffset(long)}. Only the spans that are shown are ever
+ * searched, even for the widest range.
+ */
+final class WeekModel {
+
+    /**
+     * The number of milliseconds in a day.
+     */
+    static final long MILLIS_IN_DAY = 86400000L;
+
+    /**
+     * The number of day in a week.
+     */
+    static final int DAYS_PER_WEEK = 7;
+
+    /**
+     * The day of week of January 1, 1970.
+     */
+    private static final int EPOCH_DAY_OF_WEEK = Calendar.THURSDAY;
+
+    /**
+     * The step the offset of the time zone is sampled with to find its
+     * transitions. Two transitions closer than this could cancel out, no
+     * time zone has them.
+     */
+    private static final long TRANSITION_SAMPLE_STEP = DAYS_PER_WEEK * MILLIS_IN_DAY;
+
+    /**
+     * The length of the spans of time whose offset transitions are found at
+     * once, as a shift of milliseconds. 2^35 ms are about 398 days.
+     */
+    private static final int OFFSET_SPAN_SHIFT = 35;
+
+    /**
+     * The number of sets of the span cache. A set keeps its two most
+     * recently used spans, so going back and forth between two spans of the
+     * same set finds both.
+     */
+    private static final int OFFSET_SPAN_SETS = 8;
+
+    private static final int OFFSET_SPAN_WAYS = 2;
+
+    /**
+     * The day of a row its week number is found for, the middle one.
+     */
+    private static final int WEEK_NUMBER_DAY = 3;
+
+    /**
+     * The shared models. Also guards the reference counts.
+     */
+    private static final HashMap<Key, WeekModel> sModels = new HashMap<Key, WeekModel>();
+
+    private final Key mKey;
+
+    private final TimeZone mTimeZone;
+
+    /**
+     * The spans whose transitions were found, in the set of their index
+     * modulo the set count, the most recently used first. The spans are
+     * immutable, so a span found by another thread is either seen complete
+     * or not at all, and a lost update only means a span is found again.
+     */
+    private final OffsetSpan[] mOffsetSpans = new OffsetSpan[OFFSET_SPAN_SETS * OFFSET_SPAN_WAYS];
+
+    /**
+     * The first day of the week containing the min date.
+     */
+    private final int mFirstWeekStartDay;
+
+    private final int mWeekCount;
+
+    /**
+     * The day of week the numbered weeks start with.
+     */
+    private final int mNumberedWeekStart;
+
+    /**
+     * The minimal number of days of the first numbered week of a year.
+     */
+    private final int mMinimalDaysInFirstWeek;
+
+    /**
+     * The minimal number of days of the first week of a month in the locale.
+     */
+    private final int mMinimalDaysInFirstMonthWeek;
+
+    /**
+     * The week of year of each week of the range.
+     */
+    private final byte[] mWeeksOfYear;
+
+    /**
+     * Labels for the week days starting with the first day of week.
+     */
+    private final String[] mDayLabels;
+
+    private int mReferenceCount;
+
+    /**
+     * Gets the shared model for the given configuration, creating it if
+     * necessary. Each call must be balanced with a call to {@link #release()}.
+     *
+     * @param minDate The min date in milliseconds.
+     * @param maxDate The max date in milliseconds.
+     * @param firstDayOfWeek The first day of week, e.g. {@link Calendar#SUNDAY}.
+     * @param locale The locale of the labels.
+     * @param timeZone The time zone used to find local days.
+     */
+    public static WeekModel obtain(long minDate, long maxDate, int firstDayOfWeek, Locale locale,
+            TimeZone timeZone) {
+        return obtain(minDate, maxDate, firstDayOfWeek, locale, timeZone,
+                CalendarView.WEEK_NUMBERING_LOCALE);
+    }
+
+    /**
+     * Gets the shared model for the given configuration, creating it if
+     * necessary. Each call must be balanced with a call to {@link #release()}.
+     *
+     * @param weekNumbering How the weeks of the year are numbered, e.g.
+     *            {@link CalendarView#WEEK_NUMBERING_ISO}.
+     * @see #obtain(long, long, int, Locale, TimeZone)
+     */
+    public static WeekModel obtain(long minDate, long maxDate, int firstDayOfWeek, Locale locale,
+            TimeZone timeZone, int weekNumbering) {
+        Key key = new Key(toLocalDay(minDate, timeZone), toLocalDay(maxDate, timeZone),
+                firstDayOfWeek, locale, timeZone.getID(), weekNumbering);
+        synchronized (sModels) {
+            WeekModel model = sModels.get(key);
+            if (model == null) {
+                model = new WeekModel(key, (TimeZone) timeZone.clone());
+                sModels.put(key, model);
+            }
+            model.mReferenceCount++;
+            return model;
+        }
+    }
+
+    /**
+     * Releases a model got from {@link #obtain(long, long, int, Locale, TimeZone)}.
+     * The model stays usable by the caller but may be dropped from the cache.
+     */
+    public void release() {
+        synchronized (sModels) {
+            if (--mReferenceCount == 0) {
+                sModels.remove(mKey);
+            }
+        }
+    }
+
+    private WeekModel(Key key, TimeZone timeZone) {
+        mKey = key;
+        mTimeZone = timeZone;
+
+        mFirstWeekStartDay = key.minDay
+                - floorMod(getDayOfWeek(key.minDay) - key.firstDayOfWeek, DAYS_PER_WEEK);
+        mWeekCount = getWeekForDay(key.maxDay) + 1;
+        mMinimalDaysInFirstMonthWeek = Calendar.getInstance(key.locale).getMinimalDaysInFirstWeek();
+        switch (key.weekNumbering) {
+            case CalendarView.WEEK_NUMBERING_ISO:
+                mNumberedWeekStart = Calendar.MONDAY;
+                mMinimalDaysInFirstWeek = 4;
+                break;
+            case CalendarView.WEEK_NUMBERING_US:
+                mNumberedWeekStart = Calendar.SUNDAY;
+                mMinimalDaysInFirstWeek = 1;
+                break;
+            default:
+                mNumberedWeekStart = key.firstDayOfWeek;
+                mMinimalDaysInFirstWeek = mMinimalDaysInFirstMonthWeek;
+                break;
+        }
+        mWeeksOfYear = new byte[mWeekCount];
+        int day = getWeekStartDay(0) + WEEK_NUMBER_DAY;
+        int year = getWeekBasedYear(day);
+        int yearStart = getFirstWeekStartDay(year);
+        int nextYearStart = getFirstWeekStartDay(year + 1);
+        for (int week = 0; week < mWeekCount; week++, day += DAYS_PER_WEEK) {
+            if (day >= nextYearStart) {
+                yearStart = nextYearStart;
+                nextYearStart = getFirstWeekStartDay(++year + 1);
+            }
+            mWeeksOfYear[week] = (byte) ((day - yearStart) / DAYS_PER_WEEK + 1);
+        }
+
+        // the labels of the locale of the key, not of the default one
+        String[] weekdays = new DateFormatSymbols(key.locale).getShortWeekdays();
+        mDayLabels = new String[DAYS_PER_WEEK];
+        for (int i = 0; i < DAYS_PER_WEEK; i++) {
+            int calendarDay = key.firstDayOfWeek + i;
+            if (calendarDay > Calendar.SATURDAY) {
+                calendarDay -= DAYS_PER_WEEK;
+            }
+            mDayLabels[i] = weekdays[calendarDay];
+        }
+    }
+
+    public int getMinDay() {
+        return mKey.minDay;
+    }
+
+    public int getMaxDay() {
+        return mKey.maxDay;
+    }
+
+    public int getFirstDayOfWeek() {
+        return mKey.firstDayOfWeek;
+    }
+
+    public Locale getLocale() {
+        return mKey.locale;
+    }
+
+    /**
+     * @return The number of weeks containing at least one day of the range.
+     */
+    public int getWeekCount() {
+        return mWeekCount;
+    }
+
+    /**
+     * @param index The column from 0 to 6, 0 being the first day of week.
+     * @return The short label of the week day in the given column in the
+     *         locale of this model.
+     */
+    public String getDayLabel(int index) {
+        return mDayLabels[index];
+    }
+
+    /**
+     * @return The week containing the given local day counted from the week
+     *         of the min date.
+     */
+    public int getWeekForDay(int day) {
+        return floorDiv(day - mFirstWeekStartDay, DAYS_PER_WEEK);
+    }
+
+    /**
+     * @return The local day the given week starts with.
+     */
+    public int getWeekStartDay(int week) {
+        return mFirstWeekStartDay + week * DAYS_PER_WEEK;
+    }
+
+    /**
+     * @return The week of year of the given week. The row is numbered by the
+     *         numbered week holding its middle day, which is the one holding
+     *         most of its days when the rows do not start on the same day of
+     *         week as the numbered weeks.
+     */
+    public int getWeekOfYear(int week) {
+        if (week >= 0 && week < mWeekCount) {
+            return mWeeksOfYear[week];
+        }
+        int day = getWeekStartDay(week) + WEEK_NUMBER_DAY;
+        return (day - getFirstWeekStartDay(getWeekBasedYear(day))) / DAYS_PER_WEEK + 1;
+    }
+
+    /**
+     * @return The week of month of the given local day as
+     *         {@link Calendar#WEEK_OF_MONTH} counts it with the first day of
+     *         week and the locale of this model. Days before the first week
+     *         are in week 0.
+     */
+    public int getWeekOfMonth(int day) {
+        int firstDay = getFirstDayOfMonthIndex(getMonthIndex(day));
+        int offset = floorMod(getDayOfWeek(firstDay) - mKey.firstDayOfWeek, DAYS_PER_WEEK);
+        int firstWeek = DAYS_PER_WEEK - offset >= mMinimalDaysInFirstMonthWeek ? 1 : 0;
+        return (day - firstDay + offset) / DAYS_PER_WEEK + firstWeek;
+    }
+
+    /**
+     * @return The week of month of the last day of the month of the given
+     *         local day, see {@link #getWeekOfMonth(int)}.
+     */
+    public int getLastWeekOfMonth(int day) {
+        return getWeekOfMonth(getFirstDayOfMonthIndex(getMonthIndex(day) + 1) - 1);
+    }
+
+    /**
+     * @return The year whose numbered weeks contain the given local day,
+     *         which differs from its year in the first and last days of a year.
+     */
+    private int getWeekBasedYear(int day) {
+        int year = floorDiv(getMonthIndex(day), 12);
+        if (day >= getFirstWeekStartDay(year + 1)) {
+            return year + 1;
+        } else if (day < getFirstWeekStartDay(year)) {
+            return year - 1;
+        }
+        return year;
+    }
+
+    /**
+     * @return The local day the first numbered week of the given year starts
+     *         with.
+     */
+    private int getFirstWeekStartDay(int year) {
+        int firstDay = getFirstDayOfMonthIndex(year * 12);
+        int start = firstDay - floorMod(getDayOfWeek(firstDay) - mNumberedWeekStart, DAYS_PER_WEEK);
+        if (start + DAYS_PER_WEEK - firstDay < mMinimalDaysInFirstWeek) {
+            start += DAYS_PER_WEEK;
+        }
+        return start;
+    }
+
+    /**
+     * @return The local day of the given time in the time zone of this model.
+     */
+    public int getLocalDay(long millis) {
+        return floorDay(millis + getOffset(millis));
+    }
+
+    /**
+     * @return The time of the start of the given local day.
+     */
+    public long getMillisForLocalDay(int day) {
+        long localMillis = day * MILLIS_IN_DAY;
+        return localMillis - getOffset(localMillis - getOffset(localMillis));
+    }
+
+    /**
+     * @return The offset of the time zone of this model at the given time,
+     *         found in the table of its span.
+     */
+    private int getOffset(long millis) {
+        long index = millis >> OFFSET_SPAN_SHIFT;
+        int first = (int) (index & (OFFSET_SPAN_SETS - 1)) * OFFSET_SPAN_WAYS;
+        OffsetSpan span = mOffsetSpans[first];
+        if (span == null || span.index != index) {
+            OffsetSpan second = mOffsetSpans[first + 1];
+            if (second != null && second.index == index) {
+                span = second;
+            } else {
+                span = new OffsetSpan(index, mTimeZone);
+            }
+            // the span becomes the most recently used, the other one is kept second
+            mOffsetSpans[first + 1] = mOffsetSpans[first];
+            mOffsetSpans[first] = span;
+        }
+        return span.getOffset(millis);
+    }
+
+    /**
+     * @return The time of the start of the given local day in the given time
+     *         zone.
+     */
+    static long getMillisForLocalDay(int day, TimeZone timeZone) {
+        long localMillis = day * MILLIS_IN_DAY;
+        long guess = localMillis - timeZone.getOffset(localMillis);
+        return localMillis - timeZone.getOffset(guess);
+    }
+
+    /**
+     * @return The day of week of the given local day, e.g. {@link Calendar#SUNDAY}.
+     */
+    public static int getDayOfWeek(int day) {
+        return floorMod(day + EPOCH_DAY_OF_WEEK - Calendar.SUNDAY, DAYS_PER_WEEK) + Calendar.SUNDAY;
+    }
+
+    /**
+     * @return The month of the given local day as months since January of
+     *         year 0 in the proleptic Gregorian calendar.
+     */
+    public static int getMonthIndex(int day) {
+        int z = day + 719468;
+        int era = floorDiv(z, 146097);
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        // the computed year starts in March
+        int month = mp < 10 ? mp + 2 : mp - 10;
+        int year = yoe + era * 400 + (mp < 10 ? 0 : 1);
+        return year * 12 + month;
+    }
+
+    /**
+     * @return The day of month of the given local day, from 1.
+     */
+    public static int getDayOfMonth(int day) {
+        return day - getFirstDayOfMonthIndex(getMonthIndex(day)) + 1;
+    }
+
+    /**
+     * @return The local day of the first day of the given month, counted as
+     *         in {@link #getMonthIndex(int)}.
+     */
+    public static int getFirstDayOfMonthIndex(int monthIndex) {
+        int year = floorDiv(monthIndex, 12);
+        int month = monthIndex - year * 12; // 0 is January
+        if (month < 2) {
+            year--;
+        }
+        int era = floorDiv(year, 400);
+        int yoe = year - era * 400;
+        int doy = (153 * (month < 2 ? month + 10 : month - 2) + 2) / 5;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    static int toLocalDay(long millis, TimeZone timeZone) {
+        return floorDay(millis + timeZone.getOffset(millis));
+    }
+
+    /**
+     * @return The day of the given local time.
+     */
+    private static int floorDay(long localMillis) {
+        long day = localMillis / MILLIS_IN_DAY;
+        if (localMillis < 0 && day * MILLIS_IN_DAY != localMillis) {
+            day--;
+        }
+        return (int) day;
+    }
+
+    static int floorDiv(int x, int y) {
+        int q = x / y;
+        if ((x % y != 0) && ((x < 0) != (y < 0))) {
+            q--;
+        }
+        return q;
+    }
+
+    static int floorMod(int x, int y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    /**
+     * The offset transitions of a time zone in one span of time.
+     */
+    private static final class OffsetSpan {
+
+        final long index;
+
+        /**
+         * The times the offset changes at, ascending.
+         */
+        private final long[] mTransitions;
+
+        /**
+         * The offsets from the start of the span for index 0 and from the
+         * transition before for the others.
+         */
+        private final int[] mOffsets;
+
+        /**
+         * Samples the offsets of the span and searches the exact millisecond
+         * of each change.
+         */
+        OffsetSpan(long index, TimeZone timeZone) {
+            this.index = index;
+            long start = index << OFFSET_SPAN_SHIFT;
+            long end = start + (1L << OFFSET_SPAN_SHIFT);
+            long[] transitions = new long[4];
+            int[] offsets = new int[transitions.length + 1];
+            int count = 0;
+            int offset = timeZone.getOffset(start);
+            offsets[0] = offset;
+            long time = start;
+            while (time < end) {
+                long next = Math.min(time + TRANSITION_SAMPLE_STEP, end);
+                if (timeZone.getOffset(next) == offset) {
+                    time = next;
+                    continue;
+                }
+                long low = time;
+                long high = next;
+                while (high - low > 1) {
+                    long mid = low + (high - low) / 2;
+                    if (timeZone.getOffset(mid) == offset) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+                if (count == transitions.length) {
+                    long[] newTransitions = new long[count * 2];
+                    System.arraycopy(transitions, 0, newTransitions, 0, count);
+                    transitions = newTransitions;
+                    int[] newOffsets = new int[count * 2 + 1];
+                    System.arraycopy(offsets, 0, newOffsets, 0, count + 1);
+                    offsets = newOffsets;
+                }
+                offset = timeZone.getOffset(high);
+                transitions[count] = high;
+                offsets[++count] = offset;
+                time = high;
+            }
+            mTransitions = new long[count];
+            System.arraycopy(transitions, 0, mTransitions, 0, count);
+            mOffsets = new int[count + 1];
+            System.arraycopy(offsets, 0, mOffsets, 0, count + 1);
+        }
+
+        int getOffset(long millis) {
+            // count the transitions at or before the time, a span has few
+            int i = 0;
+            while (i < mTransitions.length && mTransitions[i] <= millis) {
+                i++;
+            }
+            return mOffsets[i];
+        }
+    }
+
+    /**
+     * The configuration a model is shared for.
+     */
+    private static final class Key {
+        final int minDay;
+        final int maxDay;
+        final int firstDayOfWeek;
+        final Locale locale;
+        final String timeZoneId;
+        final int weekNumbering;
+
+        Key(int minDay, int maxDay, int firstDayOfWeek, Locale locale, String timeZoneId,
+                int weekNumbering) {
+            this.minDay = minDay;
+            this.maxDay = maxDay;
+            this.firstDayOfWeek = firstDayOfWeek;
+            this.locale = locale;
+            this.timeZoneId = timeZoneId;
+            this.weekNumbering = weekNumbering;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return minDay == other.minDay && maxDay == other.maxDay
+                    && firstDayOfWeek == other.firstDayOfWeek && locale.equals(other.locale)
+                    && timeZoneId.equals(other.timeZoneId) && weekNumbering == other.weekNumbering;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = minDay;
+            result = 31 * result + maxDay;
+            result = 31 * result + firstDayOfWeek;
+            result = 31 * result + locale.hashCode();
+            result = 31 * result + timeZoneId.hashCode();
+            result = 31 * result + weekNumbering;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+import java.util.Calendar;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+import android.graphics.Paint.Style;
+import android.graphics.Rect;
+
+/**
+ * Draws the base layers of a week row, the month tint, the selected day, the
+ * week number, the dates and the separator, into any canvas. Everything is
+ * computed from the {@link WeekModel}, so no view or {@link Calendar} is
+ * needed.
+ * <p>
+ * A painter is not thread safe but painters can draw in parallel, each one
+ * owns its paints.
+ */
+final class WeekPainter {
+
+    /**
+     * The texts of the day numbers, shared by all painters.
+     */
+    private static final String[] DAY_NUMBERS = new String[32];
+
+    /**
+     * The texts of the week numbers, shared by all painters.
+     */
+    private static final String[] WEEK_NUMBERS = new String[54];
+
+    /**
+     * The size of the secondary dates relative to the dates.
+     */
+    private static final float SECONDARY_DATE_TEXT_SCALE = 0.5f;
+
+    static {
+        for (int i = 1; i < DAY_NUMBERS.length; i++) {
+            DAY_NUMBERS[i] = Integer.toString(i);
+        }
+        for (int i = 1; i < WEEK_NUMBERS.length; i++) {
+            WEEK_NUMBERS[i] = Integer.toString(i);
+        }
+    }
+
+    private final Paint mDrawPaint = new Paint();
+
+    private final Paint mWeekdayPaint;
+
+    private final Paint mSaturdayPaint;
+
+    private final Paint mSundayPaint;
+
+    private boolean mShowWeekNumber;
+
+    private int mWeekNumberColor;
+
+    private int mSelectedDateColor;
+
+    private int mSeparatorColor;
+
+    private int mSeparatorWidth;
+
+    private int mOddMonthColor = 0x80ffeeee;
+
+    private int mEvenMonthColor = 0x80eeeeff;
+
+    private int mTodayColor;
+
+    private float mTodayStrokeWidth;
+
+    /**
+     * @param weekdayPaint The paint for the dates from Monday to Friday.
+     * @param saturdayPaint The paint for the dates on Saturday.
+     * @param sundayPaint The paint for the dates on Sunday.
+     */
+    WeekPainter(Paint weekdayPaint, Paint saturdayPaint, Paint sundayPaint) {
+        mWeekdayPaint = weekdayPaint;
+        mSaturdayPaint = saturdayPaint;
+        mSundayPaint = sundayPaint;
+        mDrawPaint.setAntiAlias(true);
+        mDrawPaint.setStyle(Style.FILL);
+        mDrawPaint.setTextAlign(Align.CENTER);
+    }
+
+    /**
+     * Creates a painter with its own copies of the paints of this one.
+     */
+    WeekPainter copy() {
+        WeekPainter painter = new WeekPainter(new Paint(mWeekdayPaint), new Paint(mSaturdayPaint),
+                new Paint(mSundayPaint));
+        painter.mShowWeekNumber = mShowWeekNumber;
+        painter.mWeekNumberColor = mWeekNumberColor;
+        painter.mSelectedDateColor = mSelectedDateColor;
+        painter.mSeparatorColor = mSeparatorColor;
+        painter.mSeparatorWidth = mSeparatorWidth;
+        painter.mOddMonthColor = mOddMonthColor;
+        painter.mEvenMonthColor = mEvenMonthColor;
+        painter.mTodayColor = mTodayColor;
+        painter.mTodayStrokeWidth = mTodayStrokeWidth;
+        return painter;
+    }
+
+    public void setShowWeekNumber(boolean showWeekNumber) {
+        mShowWeekNumber = showWeekNumber;
+    }
+
+    public boolean isShowWeekNumber() {
+        return mShowWeekNumber;
+    }
+
+    public void setDateColors(int weekdayColor, int saturdayColor, int sundayColor) {
+        mWeekdayPaint.setColor(weekdayColor);
+        mSaturdayPaint.setColor(saturdayColor);
+        mSundayPaint.setColor(sundayColor);
+    }
+
+    public void setWeekNumberColor(int color) {
+        mWeekNumberColor = color;
+    }
+
+    public void setSelectedDateColor(int color) {
+        mSelectedDateColor = color;
+    }
+
+    public void setSeparator(int color, int width) {
+        mSeparatorColor = color;
+        mSeparatorWidth = width;
+    }
+
+    /**
+     * Sets the outline of today, a transparent color draws none.
+     */
+    public void setToday(int color, float strokeWidth) {
+        mTodayColor = color;
+        mTodayStrokeWidth = strokeWidth;
+    }
+
+    public int getSeparatorWidth() {
+        return mSeparatorWidth;
+    }
+
+    /**
+     * Sets the size of the dates and the week number.
+     */
+    public void setDateTextSize(float size) {
+        mWeekdayPaint.setTextSize(size);
+        mSaturdayPaint.setTextSize(size);
+        mSundayPaint.setTextSize(size);
+        mDrawPaint.setTextSize(size);
+    }
+
+    public float getDateTextSize() {
+        return mWeekdayPaint.getTextSize();
+    }
+
+    /**
+     * @return The number of cells of a row, the days and the week number if
+     *         it is shown.
+     */
+    public int getCellCount() {
+        return mShowWeekNumber ? WeekModel.DAYS_PER_WEEK + 1 : WeekModel.DAYS_PER_WEEK;
+    }
+
+    /**
+     * @return The left edge of the given cell in a row of the given bounds.
+     */
+    public int getCellLeft(Rect bounds, int cell) {
+        return bounds.left + cell * bounds.width() / getCellCount();
+    }
+
+    /**
+     * Fills the days with a different tint for odd and even months.
+     */
+    public void drawMonthTint(Canvas canvas, WeekModel model, int week, Rect bounds) {
+        int offset = mShowWeekNumber ? 1 : 0;
+        int startDay = model.getWeekStartDay(week);
+        int top = bounds.top + mSeparatorWidth;
+        int runStart = 0;
+        int runMonth = WeekModel.getMonthIndex(startDay);
+        for (int i = 1; i <= WeekModel.DAYS_PER_WEEK; i++) {
+            int month = i < WeekModel.DAYS_PER_WEEK ? WeekModel.getMonthIndex(startDay + i) : -1;
+            if (month == runMonth) {
+                continue;
+            }
+            // months are counted from January, the colors from month 1
+            mDrawPaint.setColor((runMonth & 1) == 0 ? mOddMonthColor : mEvenMonthColor);
+            canvas.drawRect(getCellLeft(bounds, runStart + offset), top,
+                    getCellLeft(bounds, i + offset), bounds.bottom, mDrawPaint);
+            runStart = i;
+            runMonth = month;
+        }
+    }
+
+    /**
+     * Fills the selected day.
+     *
+     * @param column The column of the selected day from 0 to 6, 0 being the
+     *            first day of week, or -1 if no day is selected.
+     */
+    public void drawSelection(Canvas canvas, Rect bounds, int column) {
+        if (column < 0) {
+            return;
+        }
+        int cell = mShowWeekNumber ? column + 1 : column;
+        mDrawPaint.setColor(mSelectedDateColor);
+        canvas.drawRect(getCellLeft(bounds, cell), bounds.top + mSeparatorWidth,
+                getCellLeft(bounds, cell + 1), bounds.bottom, mDrawPaint);
+    }
+
+    /**
+     * Outlines today.
+     *
+     * @param column The column of today from 0 to 6, 0 being the first day
+     *            of week, or -1 if today is not in the week.
+     */
+    public void drawToday(Canvas canvas, Rect bounds, int column) {
+        if (column < 0 || Color.alpha(mTodayColor) == 0) {
+            return;
+        }
+        int cell = mShowWeekNumber ? column + 1 : column;
+        float inset = mTodayStrokeWidth / 2;
+        mDrawPaint.setColor(mTodayColor);
+        mDrawPaint.setStyle(Style.STROKE);
+        mDrawPaint.setStrokeWidth(mTodayStrokeWidth);
+        canvas.drawRect(getCellLeft(bounds, cell) + inset, bounds.top + mSeparatorWidth + inset,
+                getCellLeft(bounds, cell + 1) - inset, bounds.bottom - inset, mDrawPaint);
+        mDrawPaint.setStyle(Style.FILL);
+    }
+
+    /**
+     * Draws the week number and the dates of the range, centered in the
+     * given bounds.
+     */
+    public void drawDates(Canvas canvas, WeekModel model, int week, Rect bounds,
+            boolean drawWeekNumber) {
+        drawDates(canvas, model, week, bounds, drawWeekNumber, model.getMinDay(),
+                model.getMaxDay());
+    }
+
+    /**
+     * Draws the week number and the dates from firstDay to lastDay, centered
+     * in the given bounds, e.g. only the days of one month.
+     */
+    public void drawDates(Canvas canvas, WeekModel model, int week, Rect bounds,
+            boolean drawWeekNumber, int firstDay, int lastDay) {
+        float textHeight = mWeekdayPaint.getTextSize();
+        int y = (int) (bounds.top + (bounds.height() + textHeight) / 2) - mSeparatorWidth;
+        int divisor = 2 * getCellCount();
+        int cell = 0;
+        if (mShowWeekNumber) {
+            if (drawWeekNumber) {
+                mDrawPaint.setColor(mWeekNumberColor);
+                mDrawPaint.setTextSize(textHeight);
+                canvas.drawText(WEEK_NUMBERS[model.getWeekOfYear(week)],
+                        bounds.left + bounds.width() / divisor, y, mDrawPaint);
+            }
+            cell++;
+        }
+        firstDay = Math.max(firstDay, model.getMinDay());
+        lastDay = Math.min(lastDay, model.getMaxDay());
+        int startDay = model.getWeekStartDay(week);
+        for (int i = 0; i < WeekModel.DAYS_PER_WEEK; i++, cell++) {
+            int day = startDay + i;
+            // do not draw dates outside the valid range to avoid user confusion
+            if (day < firstDay || day > lastDay) {
+                continue;
+            }
+            int dayOfWeek = WeekModel.getDayOfWeek(day);
+            Paint dayPaint;
+            if (dayOfWeek == Calendar.SATURDAY) {
+                dayPaint = mSaturdayPaint;
+            } else if (dayOfWeek == Calendar.SUNDAY) {
+                dayPaint = mSundayPaint;
+            } else {
+                dayPaint = mWeekdayPaint;
+            }
+            int x = bounds.left + (2 * cell + 1) * bounds.width() / divisor;
+            canvas.drawText(DAY_NUMBERS[WeekModel.getDayOfMonth(day)], x, y, dayPaint);
+        }
+    }
+
+    /**
+     * Draws the dates of a secondary calendar small in the top right corner
+     * of the days.
+     *
+     * @param bounds The bounds the dates were drawn in.
+     * @param daysOfMonth The days of month of the days of the week, 0 for
+     *            days without a secondary date.
+     */
+    public void drawSecondaryDates(Canvas canvas, WeekModel model, int week, Rect bounds,
+            int[] daysOfMonth, int color) {
+        float textSize = mWeekdayPaint.getTextSize() * SECONDARY_DATE_TEXT_SCALE;
+        float padding = textSize / 4;
+        float y = bounds.top + mSeparatorWidth + padding + textSize;
+        int offset = mShowWeekNumber ? 1 : 0;
+        int startDay = model.getWeekStartDay(week);
+        mDrawPaint.setColor(color);
+        mDrawPaint.setTextSize(textSize);
+        mDrawPaint.setTextAlign(Align.RIGHT);
+        for (int i = 0; i < WeekModel.DAYS_PER_WEEK; i++) {
+            int day = startDay + i;
+            // days outside the range have no date drawn
+            if (daysOfMonth[i] == 0 || day < model.getMinDay() || day > model.getMaxDay()) {
+                continue;
+            }
+            canvas.drawText(DAY_NUMBERS[daysOfMonth[i]],
+                    getCellLeft(bounds, i + offset + 1) - padding, y, mDrawPaint);
+        }
+        mDrawPaint.setTextAlign(Align.CENTER);
+    }
+
+    /**
+     * Fills each day with its own color, e.g. a heatmap. Adjacent days with
+     * the same color are filled with one rectangle.
+     *
+     * @param colors The colors of the days of the week, transparent days are
+     *            not filled.
+     */
+    public void drawDayColors(Canvas canvas, Rect bounds, int[] colors) {
+        int offset = mShowWeekNumber ? 1 : 0;
+        int top = bounds.top + mSeparatorWidth;
+        int runStart = 0;
+        for (int i = 1; i <= WeekModel.DAYS_PER_WEEK; i++) {
+            if (i < WeekModel.DAYS_PER_WEEK && colors[i] == colors[runStart]) {
+                continue;
+            }
+            int color = colors[runStart];
+            if (Color.alpha(color) != 0) {
+                mDrawPaint.setColor(color);
+                canvas.drawRect(getCellLeft(bounds, runStart + offset), top,
+                        getCellLeft(bounds, i + offset), bounds.bottom, mDrawPaint);
+            }
+            runStart = i;
+        }
+    }
+
+    /**
+     * Draws a dot under the dates whose value is not 0.
+     *
+     * @param bounds The bounds the dates were drawn in.
+     * @param values The values of the days of the week.
+     */
+    public void drawDayIndicators(Canvas canvas, WeekModel model, int week, Rect bounds,
+            int[] values, int color, float radius) {
+        mDrawPaint.setColor(color);
+        float y = bounds.top + (bounds.height() + mWeekdayPaint.getTextSize()) / 2 + radius * 2;
+        int offset = mShowWeekNumber ? 1 : 0;
+        int divisor = 2 * getCellCount();
+        int startDay = model.getWeekStartDay(week);
+        for (int i = 0; i < WeekModel.DAYS_PER_WEEK; i++) {
+            int day = startDay + i;
+            // days outside the range have no date drawn
+            if (values[i] == 0 || day < model.getMinDay() || day > model.getMaxDay()) {
+                continue;
+            }
+            float x = bounds.left + (2 * (i + offset) + 1) * bounds.width() / divisor;
+            canvas.drawCircle(x, y, radius, mDrawPaint);
+        }
+    }
+
+    /**
+     * Draws the line separating the week from the previous one.
+     */
+    public void drawSeparator(Canvas canvas, Rect bounds) {
+        mDrawPaint.setColor(mSeparatorColor);
+        mDrawPaint.setStrokeWidth(mSeparatorWidth);
+        float x = getCellLeft(bounds, mShowWeekNumber ? 1 : 0);
+        canvas.drawLine(x, bounds.top, bounds.right, bounds.top, mDrawPaint);
+    }
+}
@@ -0,0 +1,588 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+import android.graphics.Paint.Style;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.widget.Scroller;
+
+/**
+ * A single week of a {@link CalendarView} in one view, paged horizontally by
+ * week. It has no child views and no adapter, so it is cheap enough to be a
+ * part of every item of a list.
+ * <p>
+ * The week is drawn by the same code as the rows of {@link CalendarView} and
+ * the view takes the same styleable attributes. Binding it to another date
+ * with {@link #setDate(long)} only finds the week of the date and redraws.
+ * <p>
+ * Like {@link CalendarView} it follows the default locale and time zone while
+ * attached, keeping the selected and shown days. Of the decorations it only
+ * draws the selection, week numbers, the separator and the marks of a
+ * {@link DayDataStore}. There is no today outline, heatmap, event titles or
+ * secondary chronology, use {@link CalendarView} for those.
+ */
+public class WeekStripView extends View {
+
+    /**
+     * The callback used to indicate the user changes the date.
+     */
+    public interface OnDateChangeListener {
+
+        /**
+         * Called upon change of the selected day.
+         *
+         * @param view The view associated with this listener.
+         * @param year The year that was set.
+         * @param month The month that was set [0-11].
+         * @param dayOfMonth The day of the month that was set.
+         */
+        public void onSelectedDayChange(WeekStripView view, int year, int month, int dayOfMonth);
+    }
+
+    private static final int DEFAULT_DATE_TEXT_SIZE = 14;
+
+    private static final int UNSCALED_WEEK_SEPARATOR_LINE_WIDTH = 1;
+
+    /**
+     * The duration of settling to a week after a drag.
+     */
+    private static final int PAGE_DURATION = 250;
+
+    private static final int DAY_DATA_INDICATOR_COLOR = 0xff3399cc;
+
+    private final WeekPainter mPainter;
+
+    private final Rect mBounds = new Rect();
+
+    private final int[] mDayValues = new int[WeekModel.DAYS_PER_WEEK];
+
+    private final Scroller mScroller;
+
+    private final int mTouchSlop;
+
+    private final int mMinimumFlingVelocity;
+
+    private final int mDateTextSize;
+
+    private final int mSeparatorWidth;
+
+    private WeekModel mWeekModel;
+
+    private boolean mWeekModelReleased;
+
+    private long mMinDate;
+
+    private long mMaxDate;
+
+    private int mFirstDayOfWeek;
+
+    /**
+     * The locale and time zone of the week model, the defaults when they
+     * were last checked.
+     */
+    private Locale mLocale = Locale.getDefault();
+
+    private TimeZone mTimeZone = TimeZone.getDefault();
+
+    /**
+     * The shown week of the model.
+     */
+    private int mWeek;
+
+    /**
+     * The selected local day.
+     */
+    private int mSelectedDay;
+
+    private DayDataStore mDayDataStore;
+
+    private int mDayDataField;
+
+    private OnDateChangeListener mOnDateChangeListener;
+
+    /**
+     * Follows the default time zone and locale while attached.
+     */
+    private final BroadcastReceiver mDefaultsChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            followDefaults();
+        }
+    };
+
+    private VelocityTracker mVelocityTracker;
+
+    private float mDownX;
+
+    private int mDownScrollX;
+
+    private boolean mDragging;
+
+    public WeekStripView(Context context) {
+        this(context, null);
+    }
+
+    public WeekStripView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public WeekStripView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+
+        TypedArray attributesArray = context.obtainStyledAttributes(attrs, R.styleable.CalendarView, defStyle, 0);
+        boolean showWeekNumber = attributesArray.getBoolean(R.styleable.CalendarView_showWeekNumber, false);
+        mFirstDayOfWeek = attributesArray.getInt(R.styleable.CalendarView_firstDayOfWeek,
+                Calendar.getInstance().getFirstDayOfWeek());
+        int selectedDateColor = attributesArray.getColor(R.styleable.CalendarView_selectedMonthDateColor, 0);
+        int weekdayColor = attributesArray.getColor(R.styleable.CalendarView_dateColor, Color.BLACK);
+        int saturdayColor = attributesArray.getColor(R.styleable.CalendarView_dateSaturdayColor, Color.BLUE);
+        int sundayColor = attributesArray.getColor(R.styleable.CalendarView_dateSundayColor, Color.RED);
+        int weekNumberColor = attributesArray.getColor(R.styleable.CalendarView_weekNumberColor, 0);
+        mDateTextSize = attributesArray.getDimensionPixelSize(R.styleable.CalendarView_dateTextSize, DEFAULT_DATE_TEXT_SIZE);
+        attributesArray.recycle();
+
+        Paint weekdayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        weekdayPaint.setTextAlign(Align.CENTER);
+        weekdayPaint.setFakeBoldText(true);
+        weekdayPaint.setStyle(Style.FILL);
+        weekdayPaint.setTextSize(mDateTextSize);
+        weekdayPaint.setColor(weekdayColor);
+        Paint saturdayPaint = new Paint(weekdayPaint);
+        saturdayPaint.setColor(saturdayColor);
+        Paint sundayPaint = new Paint(weekdayPaint);
+        sundayPaint.setColor(sundayColor);
+
+        mSeparatorWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP,
+                UNSCALED_WEEK_SEPARATOR_LINE_WIDTH, getResources().getDisplayMetrics());
+        mPainter = new WeekPainter(weekdayPaint, saturdayPaint, sundayPaint);
+        mPainter.setShowWeekNumber(showWeekNumber);
+        mPainter.setWeekNumberColor(weekNumberColor);
+        mPainter.setSelectedDateColor(selectedDateColor);
+
+        mScroller = new Scroller(context);
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+
+        // the same default range as CalendarView
+        Calendar date = Calendar.getInstance();
+        date.clear();
+        date.set(1900, Calendar.JANUARY, 1);
+        mMinDate = date.getTimeInMillis();
+        date.set(2100, Calendar.JANUARY, 1);
+        mMaxDate = date.getTimeInMillis();
+        updateWeekModel();
+        setDate(Math.max(mMinDate, Math.min(System.currentTimeMillis(), mMaxDate)));
+    }
+
+    /**
+     * Replaces the week model with the shared one of the current range and
+     * first day of week, keeping the shown and selected days.
+     */
+    private void updateWeekModel() {
+        WeekModel weekModel = WeekModel.obtain(mMinDate, mMaxDate, mFirstDayOfWeek,
+                mLocale, mTimeZone);
+        int shownDay = -1;
+        if (mWeekModel != null) {
+            shownDay = mWeekModel.getWeekStartDay(mWeek);
+            if (!mWeekModelReleased) {
+                mWeekModel.release();
+            }
+        }
+        mWeekModel = weekModel;
+        mWeekModelReleased = false;
+        if (shownDay != -1) {
+            mSelectedDay = clampDay(mSelectedDay);
+            mWeek = mWeekModel.getWeekForDay(clampDay(shownDay));
+        }
+        invalidate();
+    }
+
+    /**
+     * Takes the default locale and time zone if they changed. The range keeps
+     * its local days in a new time zone.
+     */
+    private void followDefaults() {
+        Locale locale = Locale.getDefault();
+        TimeZone timeZone = TimeZone.getDefault();
+        boolean timeZoneChanged = !timeZone.getID().equals(mTimeZone.getID());
+        if (locale.equals(mLocale) && !timeZoneChanged) {
+            return;
+        }
+        if (timeZoneChanged) {
+            int minDay = mWeekModel.getMinDay();
+            int maxDay = mWeekModel.getMaxDay();
+            mMinDate = WeekModel.getMillisForLocalDay(minDay, timeZone);
+            mMaxDate = WeekModel.getMillisForLocalDay(maxDay + 1, timeZone) - 1;
+        }
+        mLocale = locale;
+        mTimeZone = timeZone;
+        updateWeekModel();
+    }
+
+    private int clampDay(int day) {
+        return Math.max(mWeekModel.getMinDay(), Math.min(day, mWeekModel.getMaxDay()));
+    }
+
+    /**
+     * Sets the range of selectable dates.
+     *
+     * @param minDate The minimal date in milliseconds.
+     * @param maxDate The maximal date in milliseconds.
+     */
+    public void setDateRange(long minDate, long maxDate) {
+        if (maxDate < minDate) {
+            throw new IllegalArgumentException("Max date cannot be before min date.");
+        }
+        if (mMinDate == minDate && mMaxDate == maxDate) {
+            return;
+        }
+        mMinDate = minDate;
+        mMaxDate = maxDate;
+        updateWeekModel();
+    }
+
+    public long getMinDate() {
+        return mMinDate;
+    }
+
+    public long getMaxDate() {
+        return mMaxDate;
+    }
+
+    /**
+     * Sets the first day of week.
+     *
+     * @param firstDayOfWeek The first day of week, e.g. {@link Calendar#MONDAY}.
+     */
+    public void setFirstDayOfWeek(int firstDayOfWeek) {
+        if (mFirstDayOfWeek == firstDayOfWeek) {
+            return;
+        }
+        mFirstDayOfWeek = firstDayOfWeek;
+        updateWeekModel();
+    }
+
+    public int getFirstDayOfWeek() {
+        return mFirstDayOfWeek;
+    }
+
+    /**
+     * Selects the given date and shows its week, without notifying the
+     * listener. This is the call to bind the view in a list item.
+     *
+     * @param date The date in milliseconds.
+     *
+     * @throws IllegalArgumentException If the date is outside the range.
+     */
+    public void setDate(long date) {
+        if (date < mMinDate || date > mMaxDate) {
+            throw new IllegalArgumentException("Time not between " + mMinDate + " and "
+                    + mMaxDate);
+        }
+        mSelectedDay = clampDay(mWeekModel.getLocalDay(date));
+        mWeek = mWeekModel.getWeekForDay(mSelectedDay);
+        mScroller.forceFinished(true);
+        scrollTo(0, 0);
+        invalidate();
+    }
+
+    /**
+     * @return The start of the selected day in milliseconds.
+     */
+    public long getDate() {
+        return mWeekModel.getMillisForLocalDay(mSelectedDay);
+    }
+
+    /**
+     * Shows the previous or next weeks without changing the selection.
+     *
+     * @param weeks The number of weeks to page, negative to page back.
+     */
+    public void pageWeeks(int weeks, boolean animate) {
+        int week = Math.max(0, Math.min(mWeek + weeks, mWeekModel.getWeekCount() - 1));
+        if (animate && week != mWeek && Math.abs(week - mWeek) == 1) {
+            // shift to the new week and settle from where the old one is
+            scrollTo(getScrollX() - (week - mWeek) * getWidth(), 0);
+            mWeek = week;
+            settle();
+        } else {
+            mWeek = week;
+            mScroller.forceFinished(true);
+            scrollTo(0, 0);
+        }
+        invalidate();
+    }
+
+    /**
+     * @return The start of the first day of the shown week in milliseconds.
+     */
+    public long getShownWeekStart() {
+        return mWeekModel.getMillisForLocalDay(mWeekModel.getWeekStartDay(mWeek));
+    }
+
+    public void setOnDateChangeListener(OnDateChangeListener listener) {
+        mOnDateChangeListener = listener;
+    }
+
+    public void setShowWeekNumber(boolean showWeekNumber) {
+        if (mPainter.isShowWeekNumber() != showWeekNumber) {
+            mPainter.setShowWeekNumber(showWeekNumber);
+            invalidate();
+        }
+    }
+
+    public boolean getShowWeekNumber() {
+        return mPainter.isShowWeekNumber();
+    }
+
+    public void setWeekNumberColor(int color) {
+        mPainter.setWeekNumberColor(color);
+        invalidate();
+    }
+
+    public void setSelectedDateColor(int color) {
+        mPainter.setSelectedDateColor(color);
+        invalidate();
+    }
+
+    /**
+     * Sets a line drawn at the top of the week, as between the weeks of
+     * {@link CalendarView}. A transparent color draws no line.
+     */
+    public void setWeekSeparatorLineColor(int color) {
+        mPainter.setSeparator(color, Color.alpha(color) == 0 ? 0 : mSeparatorWidth);
+        invalidate();
+    }
+
+    /**
+     * Marks the days whose value in the given store is not 0, see
+     * {@link CalendarView#setDayDataStore(DayDataStore, int)}.
+     *
+     * @param store The store or null to remove the marks.
+     * @param field The index of the value in the record of a day.
+     */
+    public void setDayDataStore(DayDataStore store, int field) {
+        mDayDataStore = store;
+        mDayDataField = field;
+        invalidate();
+    }
+
+    public DayDataStore getDayDataStore() {
+        return mDayDataStore;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mWeekModelReleased) {
+            updateWeekModel();
+        }
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+        getContext().registerReceiver(mDefaultsChangedReceiver, filter);
+        // the defaults may have changed while detached
+        followDefaults();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getContext().unregisterReceiver(mDefaultsChangedReceiver);
+        // keep using the model but let the cache drop it if nobody else does
+        mWeekModel.release();
+        mWeekModelReleased = true;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int height = Math.max(getSuggestedMinimumHeight(), mDateTextSize * 3);
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int width = getWidth();
+        if (width == 0) {
+            return;
+        }
+        // the shown week and the ones dragged in from the sides
+        int firstOffset = getScrollX() < 0 ? -1 : 0;
+        int lastOffset = getScrollX() > 0 ? 1 : 0;
+        for (int offset = firstOffset; offset <= lastOffset; offset++) {
+            int week = mWeek + offset;
+            if (week < 0 || week >= mWeekModel.getWeekCount()) {
+                continue;
+            }
+            mBounds.set(offset * width, 0, (offset + 1) * width, getHeight());
+            drawWeek(canvas, week);
+        }
+    }
+
+    private void drawWeek(Canvas canvas, int week) {
+        int startDay = mWeekModel.getWeekStartDay(week);
+        mPainter.drawMonthTint(canvas, mWeekModel, week, mBounds);
+        int column = mSelectedDay - startDay;
+        mPainter.drawSelection(canvas, mBounds,
+                column >= 0 && column < WeekModel.DAYS_PER_WEEK ? column : -1);
+        mPainter.drawDates(canvas, mWeekModel, week, mBounds, true);
+        if (mDayDataStore != null) {
+            mDayDataStore.getValues(startDay, mDayDataField, mDayValues);
+            mPainter.drawDayIndicators(canvas, mWeekModel, week, mBounds, mDayValues,
+                    DAY_DATA_INDICATOR_COLOR, mSeparatorWidth * 2);
+        }
+        if (mPainter.getSeparatorWidth() > 0) {
+            mPainter.drawSeparator(canvas, mBounds);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isEnabled()) {
+            return false;
+        }
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(event);
+        switch (event.getAction() & MotionEvent.ACTION_MASK) {
+            case MotionEvent.ACTION_DOWN:
+                mScroller.forceFinished(true);
+                mDownX = event.getX();
+                mDownScrollX = getScrollX();
+                mDragging = mDownScrollX != 0;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                float deltaX = mDownX - event.getX();
+                if (!mDragging && Math.abs(deltaX) > mTouchSlop) {
+                    mDragging = true;
+                    if (getParent() != null) {
+                        getParent().requestDisallowInterceptTouchEvent(true);
+                    }
+                }
+                if (mDragging) {
+                    scrollTo(clampScrollX(mDownScrollX + (int) deltaX), 0);
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (mDragging) {
+                    mVelocityTracker.computeCurrentVelocity(1000);
+                    float velocity = mVelocityTracker.getXVelocity();
+                    int width = getWidth();
+                    int weeks = 0;
+                    if (velocity < -mMinimumFlingVelocity || getScrollX() > width / 2) {
+                        weeks = 1;
+                    } else if (velocity > mMinimumFlingVelocity || getScrollX() < -width / 2) {
+                        weeks = -1;
+                    }
+                    if (weeks != 0 && getScrollX() * weeks > 0) {
+                        pageWeeks(weeks, true);
+                    } else {
+                        settle();
+                    }
+                } else {
+                    selectDayAt(event.getX());
+                }
+                endDrag();
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                settle();
+                endDrag();
+                return true;
+        }
+        return true;
+    }
+
+    private void endDrag() {
+        mDragging = false;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    /**
+     * @return The scroll clamped so no week outside the range is dragged in.
+     */
+    private int clampScrollX(int scrollX) {
+        int width = getWidth();
+        int min = mWeek > 0 ? -width : 0;
+        int max = mWeek < mWeekModel.getWeekCount() - 1 ? width : 0;
+        return Math.max(min, Math.min(scrollX, max));
+    }
+
+    /**
+     * Animates the shown week back into place.
+     */
+    private void settle() {
+        mScroller.startScroll(getScrollX(), 0, -getScrollX(), 0, PAGE_DURATION);
+        invalidate();
+    }
+
+    @Override
+    public void computeScroll() {
+        if (mScroller.computeScrollOffset()) {
+            scrollTo(mScroller.getCurrX(), 0);
+            postInvalidate();
+        }
+    }
+
+    private void selectDayAt(float x) {
+        int cell = (int) (x * mPainter.getCellCount() / getWidth());
+        int column = mPainter.isShowWeekNumber() ? cell - 1 : cell;
+        if (column < 0 || column >= WeekModel.DAYS_PER_WEEK) {
+            return;
+        }
+        int day = mWeekModel.getWeekStartDay(mWeek) + column;
+        if (day < mWeekModel.getMinDay() || day > mWeekModel.getMaxDay()
+                || day == mSelectedDay) {
+            return;
+        }
+        playSoundEffect(SoundEffectConstants.CLICK);
+        mSelectedDay = day;
+        invalidate();
+        if (mOnDateChangeListener != null) {
+            // the local day is already the date in the time zone of the model
+            int monthIndex = WeekModel.getMonthIndex(day);
+            mOnDateChangeListener.onSelectedDayChange(this, WeekModel.floorDiv(monthIndex, 12),
+                    WeekModel.floorMod(monthIndex, 12), WeekModel.getDayOfMonth(day));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest;
+
+import java.util.ArrayList;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.view.View;
+
+/**
+ * A pool of week rows shared by several {@link CalendarView}s. When a calendar
+ * is detached its rows are put here and the next calendar created with the
+ * same {@link Context} takes them instead of creating new ones, as long as
+ * the configuration of the context is still the one the rows were created
+ * for.
+ * <p>
+ * The pool must only be used from the UI thread.
+ *
+ * @see CalendarView#setWeekViewPool(WeekViewPool)
+ */
+public class WeekViewPool {
+
+    private static final int DEFAULT_MAX_SIZE = 32;
+
+    private final int mMaxSize;
+
+    private final ArrayList<View> mViews;
+
+    /**
+     * The configuration each row was released with.
+     */
+    private final ArrayList<Configuration> mConfigurations;
+
+    public WeekViewPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum number of rows kept by this pool.
+     */
+    public WeekViewPool(int maxSize) {
+        mMaxSize = maxSize;
+        mViews = new ArrayList<View>(maxSize);
+        mConfigurations = new ArrayList<Configuration>(maxSize);
+    }
+
+    /**
+     * Takes a row created with the given context in its current configuration
+     * out of the pool. Rows of an older configuration of the context are
+     * dropped.
+     *
+     * @return The row or null if there is none.
+     */
+    View acquire(Context context) {
+        Configuration configuration = context.getResources().getConfiguration();
+        for (int i = mViews.size() - 1; i >= 0; i--) {
+            View view = mViews.get(i);
+            if (view.getContext() != context) {
+                continue;
+            }
+            boolean sameConfiguration = mConfigurations.get(i).equals(configuration);
+            mViews.remove(i);
+            mConfigurations.remove(i);
+            if (sameConfiguration) {
+                return view;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts a row which is no longer attached to a list, nor kept by its
+     * recycler, into the pool.
+     */
+    void release(View view) {
+        if (mViews.size() < mMaxSize) {
+            mViews.add(view);
+            mConfigurations.add(new Configuration(
+                    view.getContext().getResources().getConfiguration()));
+        }
+    }
+
+    /**
+     * @return The number of rows in the pool.
+     */
+    public int size() {
+        return mViews.size();
+    }
+
+    /**
+     * Removes all rows from the pool.
+     */
+    public void clear() {
+        mViews.clear();
+        mConfigurations.clear();
+    }
+}
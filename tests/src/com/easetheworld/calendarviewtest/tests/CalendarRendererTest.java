@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest.tests;
+
+import java.text.DateFormatSymbols;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import com.easetheworld.calendarviewtest.CalendarRenderer;
+
+/**
+ * Renders with {@link CalendarRenderer} into a canvas that records the draw
+ * calls, so two renders can be compared call by call, and into bitmaps.
+ */
+public class CalendarRendererTest extends TestCase {
+
+    private static final Rect BOUNDS = new Rect(0, 0, 280, 320);
+
+    private static final int THREAD_COUNT = 4;
+
+    private static final int RENDERS_PER_THREAD = 24;
+
+    private CalendarRenderer mRenderer;
+
+    private long mSelectedDate;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mRenderer = new CalendarRenderer();
+        mRenderer.setLocale(Locale.US);
+        mRenderer.setTimeZone(TimeZone.getTimeZone("UTC"));
+        mRenderer.setFirstDayOfWeek(Calendar.SUNDAY);
+        mRenderer.setShowWeekNumber(true);
+        mRenderer.setWeekSeparator(Color.GRAY, 1);
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        calendar.clear();
+        calendar.set(2012, Calendar.MARCH, 14);
+        mSelectedDate = calendar.getTimeInMillis();
+    }
+
+    private List<String> recordMonth(int year, int month) {
+        RecordingCanvas canvas = new RecordingCanvas();
+        mRenderer.renderMonth(canvas, BOUNDS, year, month, mSelectedDate);
+        return canvas.calls;
+    }
+
+    public void testRendersAreRepeatable() {
+        List<String> first = recordMonth(2012, Calendar.MARCH);
+        List<String> second = recordMonth(2012, Calendar.MARCH);
+        assertFalse(first.isEmpty());
+        assertEquals(first, second);
+        assertFalse(first.equals(recordMonth(2012, Calendar.APRIL)));
+    }
+
+    public void testRenderedBitmapsAreEqual() {
+        Bitmap first = Bitmap.createBitmap(BOUNDS.width(), BOUNDS.height(),
+                Bitmap.Config.ARGB_8888);
+        Bitmap second = Bitmap.createBitmap(BOUNDS.width(), BOUNDS.height(),
+                Bitmap.Config.ARGB_8888);
+        try {
+            mRenderer.renderMonth(first, 2012, Calendar.MARCH, mSelectedDate);
+            mRenderer.renderMonth(second, 2012, Calendar.MARCH, mSelectedDate);
+            int[] firstPixels = new int[BOUNDS.width() * BOUNDS.height()];
+            int[] secondPixels = new int[firstPixels.length];
+            first.getPixels(firstPixels, 0, BOUNDS.width(), 0, 0, BOUNDS.width(),
+                    BOUNDS.height());
+            second.getPixels(secondPixels, 0, BOUNDS.width(), 0, 0, BOUNDS.width(),
+                    BOUNDS.height());
+            for (int i = 0; i < firstPixels.length; i++) {
+                assertEquals("pixel " + i, firstPixels[i], secondPixels[i]);
+            }
+        } finally {
+            first.recycle();
+            second.recycle();
+        }
+    }
+
+    public void testParallelRendersMatchSerialRenders() throws Exception {
+        final int monthCount = 12;
+        final List<List<String>> expected = new ArrayList<List<String>>();
+        for (int month = 0; month < monthCount; month++) {
+            expected.add(recordMonth(2012, month));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                final int offset = t;
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        for (int i = 0; i < RENDERS_PER_THREAD; i++) {
+                            int month = (i + offset) % monthCount;
+                            if (!expected.get(month).equals(recordMonth(2012, month))) {
+                                return "month " + month + " differs";
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertNull(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testNamesFollowLocale() {
+        mRenderer.setLocale(Locale.FRENCH);
+        List<String> calls = recordMonth(2012, Calendar.MARCH);
+        DateFormatSymbols symbols = new DateFormatSymbols(Locale.FRENCH);
+        assertTrue(calls.toString(), containsText(calls, symbols.getMonths()[Calendar.MARCH]
+                + " 2012"));
+        String[] weekdays = symbols.getShortWeekdays();
+        for (int day = Calendar.SUNDAY; day <= Calendar.SATURDAY; day++) {
+            assertTrue(weekdays[day], containsText(calls, weekdays[day]));
+        }
+    }
+
+    private static boolean containsText(List<String> calls, String text) {
+        for (String call : calls) {
+            if (call.startsWith("text " + text + " ")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the draw calls the renderer makes with their coordinates and
+     * paint colors instead of drawing.
+     */
+    private static final class RecordingCanvas extends Canvas {
+        final List<String> calls = new ArrayList<String>();
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            calls.add("text " + text + " " + x + "," + y + " " + paint.getColor() + " "
+                    + paint.getTextSize());
+        }
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+            calls.add("rect " + left + "," + top + "," + right + "," + bottom + " "
+                    + paint.getColor());
+        }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+            calls.add("line " + startX + "," + startY + "," + stopX + "," + stopY + " "
+                    + paint.getColor());
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, Paint paint) {
+            calls.add("circle " + cx + "," + cy + "," + radius + " " + paint.getColor());
+        }
+    }
+}
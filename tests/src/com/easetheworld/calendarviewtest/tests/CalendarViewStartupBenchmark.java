@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest.tests;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.os.Bundle;
+import android.test.ActivityInstrumentationTestCase2;
+
+import com.easetheworld.calendarviewtest.CalendarView;
+import com.easetheworld.calendarviewtest.MainActivity;
+
+/**
+ * Times {@link CalendarView} from its constructor to its first draw in the
+ * window of the sample activity. Every run builds a new view, the first runs
+ * warm up the code and are not counted. The median and the minimum are
+ * reported as instrumentation status:
+ *
+ * <pre>
+ * adb shell am instrument -w -r \
+ *     -e class com.easetheworld.calendarviewtest.tests.CalendarViewStartupBenchmark \
+ *     com.easetheworld.calendarviewtest.tests/android.test.InstrumentationTestRunner
+ * </pre>
+ */
+public class CalendarViewStartupBenchmark extends ActivityInstrumentationTestCase2<MainActivity> {
+
+    private static final int WARMUP_RUNS = 3;
+
+    private static final int MEASURED_RUNS = 15;
+
+    private static final long FIRST_DRAW_TIMEOUT_SECONDS = 5;
+
+    public CalendarViewStartupBenchmark() {
+        super(MainActivity.class);
+    }
+
+    public void testConstructorToFirstDraw() throws Exception {
+        Activity activity = getActivity();
+        long[] times = new long[MEASURED_RUNS];
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            long time = measureFirstDraw(activity);
+            if (i >= WARMUP_RUNS) {
+                times[i - WARMUP_RUNS] = time;
+            }
+        }
+        Arrays.sort(times);
+        Bundle results = new Bundle();
+        results.putLong("median_micros", times[MEASURED_RUNS / 2] / 1000);
+        results.putLong("min_micros", times[0] / 1000);
+        getInstrumentation().sendStatus(0, results);
+    }
+
+    /**
+     * @return The nanoseconds from the constructor of a new calendar to the
+     *         end of its first draw.
+     */
+    private long measureFirstDraw(final Activity activity) throws InterruptedException {
+        final CountDownLatch drawn = new CountDownLatch(1);
+        final long[] times = new long[2];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                times[0] = System.nanoTime();
+                activity.setContentView(new TimedCalendarView(activity, drawn, times));
+            }
+        });
+        assertTrue("The calendar was not drawn",
+                drawn.await(FIRST_DRAW_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // let the frame finish before the next run replaces the view
+        getInstrumentation().waitForIdleSync();
+        return times[1] - times[0];
+    }
+
+    /**
+     * Records the time its first draw ends at.
+     */
+    private static final class TimedCalendarView extends CalendarView {
+
+        private final CountDownLatch mDrawn;
+
+        private final long[] mTimes;
+
+        TimedCalendarView(Context context, CountDownLatch drawn, long[] times) {
+            super(context);
+            mDrawn = drawn;
+            mTimes = times;
+        }
+
+        @Override
+        protected void dispatchDraw(Canvas canvas) {
+            super.dispatchDraw(canvas);
+            if (mDrawn.getCount() > 0) {
+                mTimes[1] = System.nanoTime();
+                mDrawn.countDown();
+            }
+        }
+    }
+}
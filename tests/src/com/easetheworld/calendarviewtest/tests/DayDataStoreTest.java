@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2012 EaseTheWorld
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * https://github.com/EaseTheWorld/CalendarView
+ */
+
+package com.easetheworld.calendarviewtest.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+
+import com.easetheworld.calendarviewtest.DayDataStore;
+
+/**
+ * Writes stores with {@link DayDataStore.Writer} and reads them back through
+ * the mapping of {@link DayDataStore}. Only plain Java is used, so this also
+ * runs on a desktop JVM with the app classes and JUnit on the class path.
+ */
+public class DayDataStoreTest extends TestCase {
+
+    // a range across January 1, 1970 so negative local days are covered
+    private static final int FIRST_DAY = -40;
+
+    private static final int DAY_COUNT = 100;
+
+    private static final int FIELD_COUNT = 3;
+
+    private File mFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mFile = File.createTempFile("daydata", ".store");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mFile.delete();
+        super.tearDown();
+    }
+
+    private static int valueOf(int day, int field) {
+        return day * 31 + field - 7;
+    }
+
+    private DayDataStore writeAndOpen() throws IOException {
+        write();
+        return DayDataStore.open(mFile);
+    }
+
+    private void write() throws IOException {
+        DayDataStore.Writer writer = new DayDataStore.Writer(mFile, FIRST_DAY, DAY_COUNT,
+                FIELD_COUNT);
+        for (int day = FIRST_DAY; day < FIRST_DAY + DAY_COUNT; day++) {
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                writer.setValue(day, field, valueOf(day, field));
+            }
+        }
+        writer.close();
+    }
+
+    public void testHeader() throws IOException {
+        DayDataStore store = writeAndOpen();
+        assertEquals(FIRST_DAY, store.getFirstDay());
+        assertEquals(DAY_COUNT, store.getDayCount());
+        assertEquals(FIELD_COUNT, store.getFieldCount());
+    }
+
+    public void testRoundTrip() throws IOException {
+        DayDataStore store = writeAndOpen();
+        for (int day = FIRST_DAY; day < FIRST_DAY + DAY_COUNT; day++) {
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                assertEquals("day " + day + ", field " + field, valueOf(day, field),
+                        store.getValue(day, field));
+            }
+        }
+    }
+
+    public void testAddValue() throws IOException {
+        DayDataStore.Writer writer = new DayDataStore.Writer(mFile, FIRST_DAY, DAY_COUNT,
+                FIELD_COUNT);
+        for (int i = 0; i < 5; i++) {
+            writer.addValue(0, 1, 2);
+        }
+        writer.addValue(FIRST_DAY, 0, -3);
+        writer.close();
+        DayDataStore store = DayDataStore.open(mFile);
+        assertEquals(10, store.getValue(0, 1));
+        assertEquals(-3, store.getValue(FIRST_DAY, 0));
+        // values never set read as 0
+        assertEquals(0, store.getValue(0, 0));
+        assertEquals(0, store.getValue(FIRST_DAY + DAY_COUNT - 1, 2));
+    }
+
+    public void testOutOfRangeDaysReadAsZero() throws IOException {
+        DayDataStore store = writeAndOpen();
+        assertEquals(0, store.getValue(FIRST_DAY - 1, 0));
+        assertEquals(0, store.getValue(FIRST_DAY + DAY_COUNT, 0));
+        assertEquals(0, store.getValue(Integer.MIN_VALUE, 1));
+        assertEquals(0, store.getValue(Integer.MAX_VALUE, 2));
+    }
+
+    public void testGetValuesAcrossBothEnds() throws IOException {
+        DayDataStore store = writeAndOpen();
+        int[] out = new int[DAY_COUNT + 20];
+        int startDay = FIRST_DAY - 10;
+        store.getValues(startDay, 2, out);
+        for (int i = 0; i < out.length; i++) {
+            int day = startDay + i;
+            int expected = day < FIRST_DAY || day >= FIRST_DAY + DAY_COUNT ? 0 : valueOf(day, 2);
+            assertEquals("day " + day, expected, out[i]);
+        }
+    }
+
+    public void testEmptyStore() throws IOException {
+        new DayDataStore.Writer(mFile, 0, 0, 1).close();
+        DayDataStore store = DayDataStore.open(mFile);
+        assertEquals(0, store.getDayCount());
+        assertEquals(0, store.getValue(0, 0));
+    }
+
+    public void testInvalidFieldIsRejected() throws IOException {
+        DayDataStore store = writeAndOpen();
+        try {
+            store.getValue(0, FIELD_COUNT);
+            fail("field out of range was read");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        try {
+            store.getValues(0, -1, new int[1]);
+            fail("negative field was read");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    public void testWriterRejectsOutOfRangeDay() throws IOException {
+        DayDataStore.Writer writer = new DayDataStore.Writer(mFile, FIRST_DAY, DAY_COUNT,
+                FIELD_COUNT);
+        try {
+            writer.setValue(FIRST_DAY + DAY_COUNT, 0, 1);
+            fail("day after the range was written");
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        try {
+            writer.addValue(FIRST_DAY - 1, 0, 1);
+            fail("day before the range was written");
+        } catch (IndexOutOfBoundsException expected) {
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void testOpenRejectsOtherFiles() throws IOException {
+        FileOutputStream out = new FileOutputStream(mFile);
+        out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18,
+                19, 20 });
+        out.close();
+        try {
+            DayDataStore.open(mFile);
+            fail("a file without the magic was opened");
+        } catch (IOException expected) {
+        }
+    }
+
+    public void testOpenRejectsTruncatedFile() throws IOException {
+        write();
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.setLength(file.length() - 4);
+        file.close();
+        try {
+            DayDataStore.open(mFile);
+            fail("a truncated file was opened");
+        } catch (IOException expected) {
+        }
+    }
+}